@@ -0,0 +1,245 @@
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.security.*;
+import java.util.*;
+import java.util.concurrent.atomic.*;
+//Author: Nicholas Taylor
+
+/*
+ * Class used for remembering the results of pairs that were already aligned, so pipelines that keep re-aligning the same pairs with the
+ * same scoring skip the alignment. The key of a pair is the SHA-256 of the scoring scheme, the settings that can change which of several
+ * optimal alignments is found, and the codes of both sequences. Scores computed without their alignment are kept under a key of their
+ * own as results with empty rows. The most recently used results are kept in memory up to cacheSize entries, and when cacheDirectory
+ * is set every result is also written there, one file per key, so it survives the JVM. A result found on disk is moved back into memory. Safe to share between threads, the hit and miss counters are kept across all of them.
+ */
+public class AlignmentCache{
+	private static final int FORMAT = 1; //Version of the cache files, files of another version are misses.
+
+	private final byte[] schemeDigest; //Digest of the scoring and settings, the start of every key.
+	private final int maxEntries; //Results kept in memory.
+	private final File directory; //Where the results are written, null for memory only.
+	private final LinkedHashMap<String,AlignmentResult> entries; //Results in least recently used order.
+	private final AtomicLong hits = new AtomicLong(); //Results found in memory.
+	private final AtomicLong diskHits = new AtomicLong(); //Results found on disk.
+	private final AtomicLong misses = new AtomicLong(); //Results that had to be aligned.
+
+	/*
+	 * Constructor for a cache of the results of the scoring and settings, keeping maxEntries in memory and writing them to directory
+	 * unless it is null.
+	 */
+	public AlignmentCache(ScoringScheme scoring, AlignmentConfig config, int maxEntries, File directory)throws IOException{
+		if(maxEntries < 0)
+			throw new IllegalArgumentException("Error invalid cacheSize " + maxEntries);
+		if(directory != null && !directory.isDirectory() && !directory.mkdirs())
+			throw new IOException("Error could not make the cache directory " + directory);
+
+		MessageDigest digest = newDigest();
+		digest.update(scoring.getAlphabet().getSymbols().getBytes(StandardCharsets.US_ASCII));
+		for(double weight : scoring.substitutionTable())
+			updateLong(digest, Double.doubleToLongBits(weight));
+		for(double gap : scoring.gapTable())
+			updateLong(digest, Double.doubleToLongBits(gap));
+		digest.update((config.getAlignmentMode() + " " + config.isFixedPoint() + " " + config.getScoreDecimals()).getBytes(StandardCharsets.US_ASCII));
+		this.schemeDigest = digest.digest();
+
+		this.maxEntries = maxEntries;
+		this.directory = directory;
+		this.entries = new LinkedHashMap<String,AlignmentResult>(16, 0.75f, true){
+			protected boolean removeEldestEntry(Map.Entry<String,AlignmentResult> eldest){
+				return size() > AlignmentCache.this.maxEntries;
+			}
+		};
+	}
+
+	/*
+	 * Returns the cache of the cacheSize and cacheDirectory properties, or null when both leave it off.
+	 */
+	public static AlignmentCache fromProperties(ScoringScheme scoring, AlignmentConfig config)throws IOException{
+		int size = Integer.valueOf(System.getProperty("cacheSize", "0"));
+		String directory = System.getProperty("cacheDirectory");
+		if(size == 0 && directory == null)
+			return null;
+		return new AlignmentCache(scoring, config, size, directory == null ? null : new File(directory));
+	}
+
+	/*
+	 * Helper method that returns a new SHA-256 digest, which every JVM has.
+	 */
+	private static MessageDigest newDigest(){
+		try{
+			return MessageDigest.getInstance("SHA-256");
+		}
+		catch(NoSuchAlgorithmException e){
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/*
+	 * Helper method that adds the 8 bytes of the value to the digest.
+	 */
+	private static void updateLong(MessageDigest digest, long value){
+		for(int shift = 56; shift >= 0; shift -= 8)
+			digest.update((byte) (value >>> shift));
+	}
+
+	/*
+	 * Method returns the key of the alignment of the pair as hex.
+	 */
+	public String key(byte[] sequenceA, byte[] sequenceB){
+		return key(sequenceA, sequenceB, false);
+	}
+
+	/*
+	 * Method returns the key of the score only of the pair as hex.
+	 */
+	public String scoreKey(byte[] sequenceA, byte[] sequenceB){
+		return key(sequenceA, sequenceB, true);
+	}
+
+	/*
+	 * Helper method that digests the pair, the lengths are part of it so no two pairs run together.
+	 */
+	private String key(byte[] sequenceA, byte[] sequenceB, boolean scoreOnly){
+		MessageDigest digest = newDigest();
+		digest.update(schemeDigest);
+		digest.update((byte) (scoreOnly ? 1 : 0));
+		updateLong(digest, ((long) sequenceA.length << 32) | sequenceB.length);
+		digest.update(sequenceA);
+		digest.update(sequenceB);
+
+		StringBuilder hex = new StringBuilder(64);
+		for(byte b : digest.digest())
+			hex.append(Character.forDigit((b >> 4) & 15, 16)).append(Character.forDigit(b & 15, 16));
+		return hex.toString();
+	}
+
+	/*
+	 * Method returns the cached result of the key, or null on a miss. A result only found on disk is put back into memory.
+	 */
+	public AlignmentResult get(String key){
+		AlignmentResult result;
+		synchronized(entries){
+			result = entries.get(key);
+		}
+		if(result != null){
+			hits.incrementAndGet();
+			return result;
+		}
+
+		result = directory == null ? null : read(key);
+		if(result == null){
+			misses.incrementAndGet();
+			return null;
+		}
+		diskHits.incrementAndGet();
+		synchronized(entries){
+			entries.put(key, result);
+		}
+		return result;
+	}
+
+	/*
+	 * Method caches the result of the key in memory, evicting the least recently used result when full, and on disk when there is a
+	 * directory. A file that can not be written only leaves the result out of the disk tier.
+	 */
+	public void put(String key, AlignmentResult result){
+		synchronized(entries){
+			entries.put(key, result);
+		}
+		if(directory != null)
+			write(key, result);
+	}
+
+	/*
+	 * Helper method that returns the file of the key, in a subdirectory of its first two digits so no directory gets too big.
+	 */
+	private File file(String key){
+		return new File(new File(directory, key.substring(0, 2)), key + ".aln");
+	}
+
+	/*
+	 * Helper method that reads the result of the key from disk, returning null when there is none or it can not be read.
+	 */
+	private AlignmentResult read(String key){
+		File file = file(key);
+		if(!file.isFile())
+			return null;
+		try(DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))){
+			if(in.readInt() != FORMAT)
+				return null;
+			double score = in.readDouble();
+			int length = in.readInt();
+			if(length < 0 || 2L * length > file.length())
+				return null;
+			byte[] a = new byte[length];
+			byte[] b = new byte[length];
+			in.readFully(a);
+			in.readFully(b);
+			char[] alignmentA = new String(a, StandardCharsets.US_ASCII).toCharArray();
+			char[] alignmentB = new String(b, StandardCharsets.US_ASCII).toCharArray();
+			return new AlignmentResult(score, alignmentA, alignmentB, 0, length);
+		}
+		catch(IOException e){ //A truncated or damaged file is a miss.
+			return null;
+		}
+	}
+
+	/*
+	 * Helper method that writes the result of the key to a temporary file and moves it into place, so a reader never sees half a file
+	 * even when several JVMs share the directory.
+	 */
+	private void write(String key, AlignmentResult result){
+		File file = file(key);
+		try{
+			file.getParentFile().mkdirs();
+			File temporary = File.createTempFile(key, ".tmp", file.getParentFile());
+			try(DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temporary)))){
+				String a = result.getAlignmentA();
+				out.writeInt(FORMAT);
+				out.writeDouble(result.getScore());
+				out.writeInt(a.length());
+				out.write(a.getBytes(StandardCharsets.US_ASCII));
+				out.write(result.getAlignmentB().getBytes(StandardCharsets.US_ASCII));
+			}
+			try{
+				Files.move(temporary.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+			}
+			finally{
+				temporary.delete(); //Only still there when the move failed.
+			}
+		}
+		catch(IOException e){ //The result stays in memory, the next run aligns it again.
+		}
+	}
+
+	/*
+	 * Returns the number of results found in memory.
+	 */
+	public long getHits(){
+		return hits.get();
+	}
+
+	/*
+	 * Returns the number of results found on disk.
+	 */
+	public long getDiskHits(){
+		return diskHits.get();
+	}
+
+	/*
+	 * Returns the number of results that were not cached.
+	 */
+	public long getMisses(){
+		return misses.get();
+	}
+
+	/*
+	 * Method writes the counters as tab separated name and value lines, the same as the batch statistics.
+	 */
+	public void write(PrintWriter pw){
+		pw.println("cache_hits\t" + getHits());
+		pw.println("cache_disk_hits\t" + getDiskHits());
+		pw.println("cache_misses\t" + getMisses());
+	}
+}
@@ -0,0 +1,187 @@
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.file.*;
+import java.security.*;
+//Author: Nicholas Taylor
+
+/*
+ * Class used for keeping a long full matrix alignment in a memory mapped file so it can be resumed after the process dies. The file
+ * holds a header, two slots for the row of scores at the last checkpoint, and the 2 bit traceback of every cell, which lives only in
+ * the file so alignments bigger than the heap spill to disk. A checkpoint forces the traceback rows filled so far to disk, writes the
+ * score row into the slot not in use, forces it, and only then switches the header to that slot and its row count, so a crash at any
+ * point leaves the previous checkpoint whole. The header carries a digest of the scoring and both sequences so a file is never resumed
+ * for a different pair.
+ *
+ * Layout: magic, n, m, SHA-256 digest, state (completed rows * 2 + slot), slot 0 and slot 1 of m+1 doubles each, then the traceback
+ * from the next 4096 byte boundary on.
+ */
+public class AlignmentCheckpoint implements Closeable{
+	private static final long MAGIC = 0x5343434b50543031L; //"SCCKPT01".
+	private static final int STATE = 48; //Position of the state in the header.
+	private static final int SLOTS = 56; //Position of slot 0.
+
+	private final File file; //The checkpoint file.
+	private final FileChannel channel; //Open channel of the file.
+	private final MappedByteBuffer header; //Header and both slots.
+	private final TracebackMatrix matrix; //The traceback, mapped from the file.
+	private final int cols; //m, the score row holds m+1 values.
+	private final byte[] digest; //Digest of the scoring and the pair the file was made for.
+	private final long intervalNanos; //Least time between checkpoints.
+	private long lastCheckpoint; //System.nanoTime of the last checkpoint.
+	private int completedRows; //Rows of the matrix saved by the last checkpoint.
+	private int slot; //Slot of the last checkpoint.
+
+	/*
+	 * Constructor that maps the file for the pair, continuing its last checkpoint when resume is true and starting a new one otherwise.
+	 * Throws an IOException when a file to resume is missing or was made for a different pair or scoring.
+	 */
+	private AlignmentCheckpoint(File file, ScoringScheme scoring, byte[] sequenceA, byte[] sequenceB, boolean resume, long intervalSeconds)
+		throws IOException{
+
+		this.file = file;
+		this.cols = sequenceB.length;
+		this.intervalNanos = intervalSeconds * 1000000000L;
+		long headerBytes = SLOTS + 2L * Double.BYTES * (cols + 1);
+		if(headerBytes > Integer.MAX_VALUE)
+			throw new IOException("Error sequence of length " + cols + " is too long to checkpoint");
+		this.digest = digest(scoring, sequenceA, sequenceB);
+
+		if(resume && !file.isFile())
+			throw new IOException("Error no checkpoint to resume at " + file);
+		this.channel = resume ? FileChannel.open(file.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE)
+			: FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ,
+				StandardOpenOption.WRITE);
+		try{
+			this.header = channel.map(FileChannel.MapMode.READ_WRITE, 0, headerBytes);
+			if(resume){
+				byte[] stored = new byte[digest.length];
+				header.position(16);
+				header.get(stored);
+				if(header.getLong(0) != MAGIC || header.getInt(8) != sequenceA.length || header.getInt(12) != cols
+					|| !MessageDigest.isEqual(stored, digest))
+					throw new IOException("Error checkpoint " + file + " is not of this pair and scoring");
+				long state = header.getLong(STATE);
+				this.completedRows = (int) (state >>> 1);
+				this.slot = (int) (state & 1);
+			}
+			else{
+				header.putLong(0, MAGIC);
+				header.putInt(8, sequenceA.length);
+				header.putInt(12, cols);
+				header.position(16);
+				header.put(digest);
+				header.putLong(STATE, 0);
+				header.force();
+			}
+			this.matrix = new TracebackMatrix(sequenceA.length, cols, channel, (headerBytes + 4095) & ~4095L);
+		}
+		catch(IOException | RuntimeException e){
+			channel.close();
+			throw e;
+		}
+		this.lastCheckpoint = System.nanoTime();
+	}
+
+	/*
+	 * Returns the checkpoint of the pair in the file, resumed from its last checkpoint when resume is true, taking checkpoints at most
+	 * every intervalSeconds.
+	 */
+	public static AlignmentCheckpoint open(File file, ScoringScheme scoring, byte[] sequenceA, byte[] sequenceB, boolean resume,
+		long intervalSeconds)throws IOException{
+
+		return new AlignmentCheckpoint(file, scoring, sequenceA, sequenceB, resume, intervalSeconds);
+	}
+
+	/*
+	 * Helper method that returns the SHA-256 of the scoring tables and both sequences.
+	 */
+	private static byte[] digest(ScoringScheme scoring, byte[] sequenceA, byte[] sequenceB){
+		try{
+			MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			ByteBuffer values = ByteBuffer.allocate(Double.BYTES * (scoring.substitutionTable().length + scoring.gapTable().length));
+			for(double weight : scoring.substitutionTable())
+				values.putDouble(weight);
+			for(double gap : scoring.gapTable())
+				values.putDouble(gap);
+			digest.update(values.array());
+			digest.update(sequenceA);
+			digest.update((byte) '-'); //Keeps the lengths apart, they are also in the header.
+			digest.update(sequenceB);
+			return digest.digest();
+		}
+		catch(NoSuchAlgorithmException e){
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/*
+	 * Returns true if the file was made for this pair and scoring.
+	 */
+	public boolean isOf(ScoringScheme scoring, byte[] sequenceA, byte[] sequenceB){
+		return MessageDigest.isEqual(digest, digest(scoring, sequenceA, sequenceB));
+	}
+
+	/*
+	 * Returns the traceback store in the file.
+	 */
+	public TracebackMatrix getMatrix(){
+		return matrix;
+	}
+
+	/*
+	 * Returns the number of rows of the matrix the last checkpoint saved, 0 for a new file.
+	 */
+	public int getCompletedRows(){
+		return completedRows;
+	}
+
+	/*
+	 * Method copies the score row of the last checkpoint, S(completedRows,j) for j from 0 to m, into row.
+	 */
+	public void restoreRow(double[] row){
+		int base = SLOTS + slot * Double.BYTES * (cols + 1);
+		for(int j = 0; j <= cols; j++)
+			row[j] = header.getDouble(base + j * Double.BYTES);
+	}
+
+	/*
+	 * Returns true if the interval has passed since the last checkpoint.
+	 */
+	public boolean isDue(){
+		return System.nanoTime() - lastCheckpoint >= intervalNanos;
+	}
+
+	/*
+	 * Method saves a checkpoint after the first rows of the matrix were filled, where row holds their last row of scores.
+	 */
+	public void save(int rows, double[] row){
+		matrix.force(); //The traceback has to be on disk before a checkpoint points past it.
+		int next = 1 - slot;
+		int base = SLOTS + next * Double.BYTES * (cols + 1);
+		for(int j = 0; j <= cols; j++)
+			header.putDouble(base + j * Double.BYTES, row[j]);
+		header.force();
+
+		header.putLong(STATE, ((long) rows << 1) | next);
+		header.force();
+		this.slot = next;
+		this.completedRows = rows;
+		this.lastCheckpoint = System.nanoTime();
+	}
+
+	/*
+	 * Method closes the file, which stays on disk. The mappings stay valid until they are collected.
+	 */
+	public void close()throws IOException{
+		channel.close();
+	}
+
+	/*
+	 * Method closes and deletes the file, once the alignment it was kept for has been written out.
+	 */
+	public void delete()throws IOException{
+		close();
+		Files.deleteIfExists(file.toPath());
+	}
+}
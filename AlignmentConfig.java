@@ -0,0 +1,180 @@
+import java.util.*;
+//Author: Nicholas Taylor
+
+/*
+ * Class used for holding the settings of the aligner as one immutable value, so an AlignmentEngine can be shared between threads and
+ * several engines with different settings can run in the same JVM without going through the global System properties. The settings are
+ * the alignmentMode (full, linear, banded or auto), the number of threads filling the full matrix, whether the vector kernel may be used,
+ * whether the full mode traceback is kept off the heap, the first band width of the banded mode, whether unit cost schemes may use
+ * the BitParallelAligner and whether the full mode and the scores are filled in fixed point with a number of decimals.
+ */
+public final class AlignmentConfig{
+	private final String alignmentMode; //full, linear, banded or auto.
+	private final int threads; //Threads used to fill the full matrix.
+	private final boolean vectorKernel; //False turns off the StripedScoreKernel.
+	private final boolean offHeapTraceback; //True keeps the full mode traceback in direct buffers.
+	private final int bandWidth; //Diagonals on each side of the band the banded mode starts with.
+	private final boolean bitParallel; //False turns off the BitParallelAligner.
+	private final boolean fixedPoint; //True fills with the FixedPointAligner when the scores fit.
+	private final int scoreDecimals; //Decimals the fixed point scores keep.
+
+	/*
+	 * Constructor for the settings with the default band width of 32, the BitParallelAligner on and double scores, throws an
+	 * IllegalArgumentException for an unknown mode or fewer than one thread.
+	 */
+	public AlignmentConfig(String alignmentMode, int threads, boolean vectorKernel, boolean offHeapTraceback){
+		this(alignmentMode, threads, vectorKernel, offHeapTraceback, 32, true, false, 3);
+	}
+
+	/*
+	 * Constructor for every setting, throws an IllegalArgumentException for an unknown mode, fewer than one thread, a band width
+	 * below one or decimals outside 0 to 9.
+	 */
+	private AlignmentConfig(String alignmentMode, int threads, boolean vectorKernel, boolean offHeapTraceback, int bandWidth, boolean bitParallel,
+		boolean fixedPoint, int scoreDecimals){
+		if(!(alignmentMode.equals("full") || alignmentMode.equals("linear") || alignmentMode.equals("banded") || alignmentMode.equals("auto")))
+			throw new IllegalArgumentException("Error invalid alignmentMode " + alignmentMode);
+		if(threads < 1)
+			throw new IllegalArgumentException("Error invalid threads " + threads);
+		if(bandWidth < 1)
+			throw new IllegalArgumentException("Error invalid bandWidth " + bandWidth);
+		if(scoreDecimals < 0 || scoreDecimals > 9)
+			throw new IllegalArgumentException("Error invalid scoreDecimals " + scoreDecimals);
+
+		this.alignmentMode = alignmentMode;
+		this.threads = threads;
+		this.vectorKernel = vectorKernel;
+		this.offHeapTraceback = offHeapTraceback;
+		this.bandWidth = bandWidth;
+		this.bitParallel = bitParallel;
+		this.fixedPoint = fixedPoint;
+		this.scoreDecimals = scoreDecimals;
+	}
+
+	/*
+	 * Returns the settings of the alignmentMode, threads, vectorKernel, tracebackStorage, bandWidth, bitParallel, scoreType and
+	 * scoreDecimals keys of the properties, with the same defaults as the configuration file.
+	 */
+	public static AlignmentConfig fromProperties(Properties properties){
+		return new AlignmentConfig(properties.getProperty("alignmentMode", "auto"),
+			Integer.valueOf(properties.getProperty("threads", "1")),
+			!properties.getProperty("vectorKernel", "true").equals("false"),
+			properties.getProperty("tracebackStorage", "heap").equals("offheap"),
+			Integer.valueOf(properties.getProperty("bandWidth", "32")),
+			!properties.getProperty("bitParallel", "true").equals("false"),
+			properties.getProperty("scoreType", "double").equals("fixed"),
+			Integer.valueOf(properties.getProperty("scoreDecimals", "3")));
+	}
+
+	/*
+	 * Returns the settings of the System properties, which is where Parser.parseConfigFile puts the configuration file.
+	 */
+	public static AlignmentConfig fromProperties(){
+		return fromProperties(System.getProperties());
+	}
+
+	/*
+	 * Returns a copy of the settings with a different alignment mode.
+	 */
+	public AlignmentConfig withAlignmentMode(String alignmentMode){
+		return new AlignmentConfig(alignmentMode, threads, vectorKernel, offHeapTraceback, bandWidth, bitParallel, fixedPoint, scoreDecimals);
+	}
+
+	/*
+	 * Returns a copy of the settings with a different number of fill threads.
+	 */
+	public AlignmentConfig withThreads(int threads){
+		return new AlignmentConfig(alignmentMode, threads, vectorKernel, offHeapTraceback, bandWidth, bitParallel, fixedPoint, scoreDecimals);
+	}
+
+	/*
+	 * Returns a copy of the settings with the vector kernel turned on or off.
+	 */
+	public AlignmentConfig withVectorKernel(boolean vectorKernel){
+		return new AlignmentConfig(alignmentMode, threads, vectorKernel, offHeapTraceback, bandWidth, bitParallel, fixedPoint, scoreDecimals);
+	}
+
+	/*
+	 * Returns a copy of the settings with a different first band width.
+	 */
+	public AlignmentConfig withBandWidth(int bandWidth){
+		return new AlignmentConfig(alignmentMode, threads, vectorKernel, offHeapTraceback, bandWidth, bitParallel, fixedPoint, scoreDecimals);
+	}
+
+	/*
+	 * Returns a copy of the settings with the BitParallelAligner turned on or off.
+	 */
+	public AlignmentConfig withBitParallel(boolean bitParallel){
+		return new AlignmentConfig(alignmentMode, threads, vectorKernel, offHeapTraceback, bandWidth, bitParallel, fixedPoint, scoreDecimals);
+	}
+
+	/*
+	 * Returns a copy of the settings with fixed point scores turned on or off.
+	 */
+	public AlignmentConfig withFixedPoint(boolean fixedPoint){
+		return new AlignmentConfig(alignmentMode, threads, vectorKernel, offHeapTraceback, bandWidth, bitParallel, fixedPoint, scoreDecimals);
+	}
+
+	/*
+	 * Returns a copy of the settings with a different number of fixed point decimals.
+	 */
+	public AlignmentConfig withScoreDecimals(int scoreDecimals){
+		return new AlignmentConfig(alignmentMode, threads, vectorKernel, offHeapTraceback, bandWidth, bitParallel, fixedPoint, scoreDecimals);
+	}
+
+	/*
+	 * Returns the alignment mode.
+	 */
+	public String getAlignmentMode(){
+		return alignmentMode;
+	}
+
+	/*
+	 * Returns the number of threads used to fill the full matrix.
+	 */
+	public int getThreads(){
+		return threads;
+	}
+
+	/*
+	 * Returns true if the vector kernel may be used.
+	 */
+	public boolean useVectorKernel(){
+		return vectorKernel;
+	}
+
+	/*
+	 * Returns true if the full mode traceback is kept off the heap.
+	 */
+	public boolean isOffHeapTraceback(){
+		return offHeapTraceback;
+	}
+
+	/*
+	 * Returns the number of diagonals on each side of the band the banded mode starts with.
+	 */
+	public int getBandWidth(){
+		return bandWidth;
+	}
+
+	/*
+	 * Returns true if unit cost schemes may be aligned with the BitParallelAligner.
+	 */
+	public boolean useBitParallel(){
+		return bitParallel;
+	}
+
+	/*
+	 * Returns true if the full mode and the scores are filled in fixed point when they fit.
+	 */
+	public boolean isFixedPoint(){
+		return fixedPoint;
+	}
+
+	/*
+	 * Returns the number of decimals the fixed point scores keep.
+	 */
+	public int getScoreDecimals(){
+		return scoreDecimals;
+	}
+}
@@ -0,0 +1,134 @@
+import java.io.*;
+//Author: Nicholas Taylor
+
+/*
+ * Class used for aligning any number of pairs with one scoring scheme and one set of settings, safe to share between threads. Both are
+ * immutable, and every thread that uses the engine gets its own SequenceComparison workspace and ScoreOnlyAligner the first time it
+ * does. The workspaces keep their rows, traceback and alignment buffers between pairs and only grow them, so a thread aligning a stream
+ * of pairs stops allocating once it has seen the largest pair. The sequences passed in are read, never copied or changed, and must not
+ * be changed by the caller while they are being aligned. With an AlignmentCache, pairs that were aligned before are returned from the
+ * cache without touching a workspace.
+ */
+public class AlignmentEngine{
+	private final ScoringScheme scoring; //The alphabet, weight matrix and gap penalties.
+	private final AlignmentConfig config; //The settings of every alignment.
+	private final ThreadLocal<SequenceComparison> workspaces; //Reusable workspace of each thread.
+	private final ThreadLocal<ScoreOnlyAligner> aligners; //Reusable rolling row of each thread for the scores.
+	private final AlignmentCache cache; //Results of the pairs already aligned, null for none.
+
+	/*
+	 * Constructor for the engine of the scoring scheme and settings.
+	 */
+	public AlignmentEngine(ScoringScheme scoring, AlignmentConfig config){
+		this(scoring, config, null);
+	}
+
+	/*
+	 * Constructor for the engine of the scoring scheme and settings that looks the pairs up in the cache first, which must have been
+	 * made for the same scoring and settings, or is null for none.
+	 */
+	public AlignmentEngine(ScoringScheme scoring, AlignmentConfig config, AlignmentCache cache){
+		this.scoring = scoring;
+		this.config = config;
+		this.cache = cache;
+		this.workspaces = ThreadLocal.withInitial(() -> new SequenceComparison(scoring, config));
+		this.aligners = ThreadLocal.withInitial(() -> new ScoreOnlyAligner(scoring, config));
+	}
+
+	/*
+	 * Method aligns the two sequences of codes on the calling thread's workspace and returns a copy of the result.
+	 */
+	public AlignmentResult align(byte[] sequenceA, byte[] sequenceB){
+		SequenceComparison workspace = workspaces.get();
+		if(cache == null){
+			workspace.align(sequenceA, sequenceB);
+			return workspace.getResult();
+		}
+
+		String key = cache.key(sequenceA, sequenceB);
+		AlignmentResult result = cache.get(key);
+		if(result != null){
+			workspace.getStats().reset("cached"); //Nothing was computed.
+			return result;
+		}
+		workspace.align(sequenceA, sequenceB);
+		result = workspace.getResult();
+		cache.put(key, result);
+		return result;
+	}
+
+	/*
+	 * Method aligns the two sequences of codes and writes the result straight out of the calling thread's workspace, without copying it.
+	 */
+	public void align(byte[] sequenceA, byte[] sequenceB, AlignmentWriter writer, String idA, String idB)throws IOException{
+		if(cache != null){ //The result is copied into the cache anyway.
+			align(sequenceA, sequenceB).write(writer, idA, idB);
+			return;
+		}
+		SequenceComparison workspace = workspaces.get();
+		workspace.align(sequenceA, sequenceB);
+		workspace.writeAlignment(writer, idA, idB);
+	}
+
+	/*
+	 * Method aligns the two sequences of codes on the calling thread's workspace with the traceback in the checkpoint's file, continuing 
+	 * from its last checkpoint, and returns a copy of the result. The cache is not used.
+	 */
+	public AlignmentResult align(byte[] sequenceA, byte[] sequenceB, AlignmentCheckpoint checkpoint){
+		SequenceComparison workspace = workspaces.get();
+		workspace.align(sequenceA, sequenceB, checkpoint);
+		return workspace.getResult();
+	}
+
+	/*
+	 * Method returns a new IncrementalAligner of the engine's scoring for a sequence A that grows against the fixed sequenceB. It is not
+	 * a workspace of the engine and belongs to the caller.
+	 */
+	public IncrementalAligner incremental(byte[] sequenceB){
+		return new IncrementalAligner(scoring, sequenceB);
+	}
+
+	/*
+	 * Method returns only the optimal similarity score of the two sequences of codes, from the cache when the pair was scored before.
+	 */
+	public double score(byte[] sequenceA, byte[] sequenceB){
+		if(cache == null)
+			return aligners.get().score(sequenceA, sequenceB);
+
+		String key = cache.scoreKey(sequenceA, sequenceB);
+		AlignmentResult result = cache.get(key);
+		if(result != null)
+			return result.getScore();
+		double score = aligners.get().score(sequenceA, sequenceB);
+		cache.put(key, new AlignmentResult(score, new char[0], new char[0], 0, 0));
+		return score;
+	}
+
+	/*
+	 * Returns the measurements of the calling thread's last alignment, which its next alignment overwrites.
+	 */
+	public AlignmentStats getStats(){
+		return workspaces.get().getStats();
+	}
+
+	/*
+	 * Returns the scoring scheme of the engine.
+	 */
+	public ScoringScheme getScoring(){
+		return scoring;
+	}
+
+	/*
+	 * Returns the cache of the engine, or null when it has none.
+	 */
+	public AlignmentCache getCache(){
+		return cache;
+	}
+
+	/*
+	 * Returns the settings of the engine.
+	 */
+	public AlignmentConfig getConfig(){
+		return config;
+	}
+}
@@ -0,0 +1,44 @@
+import jdk.jfr.*;
+//Author: Nicholas Taylor
+
+/*
+ * JFR event committed for every alignment, so a recording shows the lengths, mode, cells and phase times of each one. Costs next to
+ * nothing when no recording is running. Record with java -XX:StartFlightRecording=filename=run.jfr and read with jfr print --events
+ * sequencecomparison.Alignment run.jfr.
+ */
+@Name("sequencecomparison.Alignment")
+@Label("Alignment")
+@Category("Sequence Comparison")
+@Description("Global alignment of two sequences")
+public class AlignmentEvent extends Event{
+	@Label("Length A")
+	int lengthA;
+
+	@Label("Length B")
+	int lengthB;
+
+	@Label("Mode")
+	String mode;
+
+	@Label("Cells")
+	long cells;
+
+	@Label("Score")
+	double score;
+
+	@Label("Init Time")
+	@Timespan(Timespan.NANOSECONDS)
+	long initNanos;
+
+	@Label("Fill Time")
+	@Timespan(Timespan.NANOSECONDS)
+	long fillNanos;
+
+	@Label("Traceback Time")
+	@Timespan(Timespan.NANOSECONDS)
+	long tracebackNanos;
+
+	@Label("Matrix Bytes")
+	@DataAmount
+	long matrixBytes;
+}
@@ -0,0 +1,50 @@
+import java.io.*;
+import java.util.*;
+//Author: Nicholas Taylor
+
+/*
+ * Class used for holding the score and the two aligned rows of one alignment as an immutable value, so it can be handed to another
+ * thread after the workspace that computed it has moved on to the next pair.
+ */
+public final class AlignmentResult{
+	private final double score; //The optimal similarity score.
+	private final char[] alignmentA; //Aligned row of sequence A.
+	private final char[] alignmentB; //Aligned row of sequence B.
+
+	/*
+	 * Constructor that copies the aligned rows a[start,end) and b[start,end).
+	 */
+	public AlignmentResult(double score, char[] a, char[] b, int start, int end){
+		this.score = score;
+		this.alignmentA = Arrays.copyOfRange(a, start, end);
+		this.alignmentB = Arrays.copyOfRange(b, start, end);
+	}
+
+	/*
+	 * Returns the optimal similarity score.
+	 */
+	public double getScore(){
+		return score;
+	}
+
+	/*
+	 * Returns the optimal alignment of sequence A.
+	 */
+	public String getAlignmentA(){
+		return new String(alignmentA);
+	}
+
+	/*
+	 * Returns the optimal alignment of sequence B.
+	 */
+	public String getAlignmentB(){
+		return new String(alignmentB);
+	}
+
+	/*
+	 * Method writes the score and alignment of the pair through the writer.
+	 */
+	public void write(AlignmentWriter writer, String idA, String idB)throws IOException{
+		writer.write(idA, idB, score, alignmentA, alignmentB, 0, alignmentA.length);
+	}
+}
@@ -0,0 +1,456 @@
+import java.io.*;
+import java.net.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import com.sun.net.httpserver.*;
+import Jama.*;
+//Author: Nicholas Taylor
+
+/*
+ * Class used for the server mode, a long lived process on the loopback interface that aligns pairs sent to it over HTTP so each pair does
+ * not pay for a JVM start and a cold JIT. POST /align takes a body of key = value lines, the same as the configuration file:
+ *   a, b              - the symbols of the two sequences, or
+ *   sequenceA, sequenceB - ids in sequenceInputFile
+ *   sequenceInputFile, weightMatrixFile, gapPenaltyFile, alphabet, outputFormat, maxColumns, scoreOnly
+ * and every key left out takes the value of the server's configuration file. The answer is the alignment or score in outputFormat.
+ * GET /stats answers with the request and batch counters as tab separated lines. A request may only name the files of the server's
+ * configuration and those listed in serverFiles, and a request that fails on anything but its own keys gets a generic answer, so the
+ * server never reads or echoes other files. A body over 16 MB or a pair of more than serverMaxCells cells gets a 400 answer, so one
+ * request can not run the server out of memory.
+ *
+ * The parsed scoring files, with an AlignmentEngine for each set of them, and the parsed sequence files are kept between requests and
+ * only parsed again when a file changes, at most serverCacheSize of each in least recently used order. Requests are read on a pool of threads, one per request in flight. Pairs of at most
+ * serverBatchCells cells are queued and a batcher thread hands up to serverBatchSize of them at a time to one worker, which aligns them
+ * one after another on its warm workspace, so a stream of small pairs costs one hand off per batch instead of one per pair. Larger pairs
+ * are aligned on the thread that read them.
+ */
+public class AlignmentServer{
+	private static final Set<String> KEYS = new HashSet<String>(Arrays.asList("a", "b", "sequenceA", "sequenceB", "sequenceInputFile",
+		"weightMatrixFile", "gapPenaltyFile", "alphabet", "outputFormat", "maxColumns", "scoreOnly")); //Keys a request may set.
+	private static final int MAX_BODY_BYTES = 16 << 20; //Largest body read.
+
+	private final Properties defaults; //The server's configuration, the values of the keys a request leaves out.
+	private final AlignmentConfig config; //Settings of every engine.
+	private final int batchCells; //Largest pair that is batched.
+	private final int batchSize; //Most pairs in a batch.
+	private final long maxCells; //Largest pair that is aligned at all.
+	private final Set<String> allowedFiles = new HashSet<String>(); //Canonical paths of the files a request may name.
+	private final Map<String,Profile> profiles; //Engines of each scoring, least recently used first.
+	private final Map<String,SequenceFile> files; //Parsed sequence files, least recently used first.
+	private final BlockingQueue<Job> queue = new LinkedBlockingQueue<Job>(); //Small pairs waiting for a batch.
+	private final ExecutorService workers; //Align the batches.
+	private final ExecutorService requests; //Read and answer the requests.
+	private final HttpServer server;
+	private final LongAdder requestCount = new LongAdder();
+	private final LongAdder batchCount = new LongAdder();
+	private final LongAdder batchedCount = new LongAdder();
+
+	/*
+	 * Class used for holding the engine of one set of scoring files and the times they were changed when they were parsed.
+	 */
+	private static class Profile{
+		final AlignmentEngine engine;
+		final long stamp;
+
+		Profile(AlignmentEngine engine, long stamp){
+			this.engine = engine;
+			this.stamp = stamp;
+		}
+	}
+
+	/*
+	 * Class used for holding the sequences of a file and the time it was changed when it was parsed.
+	 */
+	private static class SequenceFile{
+		final Map<String,byte[]> sequences;
+		final long stamp;
+
+		SequenceFile(Map<String,byte[]> sequences, long stamp){
+			this.sequences = sequences;
+			this.stamp = stamp;
+		}
+	}
+
+	/*
+	 * Class used for the errors of a request that only name its own keys and values, which are sent back to the client.
+	 */
+	private static class BadRequest extends IOException{
+		private static final long serialVersionUID = 1L;
+
+		BadRequest(String message){
+			super(message);
+		}
+	}
+
+	/*
+	 * Class used for holding a pair that waits for a batch and the answer it gets.
+	 */
+	private static class Job{
+		final AlignmentEngine engine;
+		final byte[] sequenceA, sequenceB;
+		final String idA, idB, format;
+		final int maxColumns;
+		final boolean scoreOnly;
+		final CompletableFuture<String> answer = new CompletableFuture<String>();
+
+		Job(AlignmentEngine engine, byte[] sequenceA, byte[] sequenceB, String idA, String idB, String format, int maxColumns, boolean scoreOnly){
+			this.engine = engine;
+			this.sequenceA = sequenceA;
+			this.sequenceB = sequenceB;
+			this.idA = idA;
+			this.idB = idB;
+			this.format = format;
+			this.maxColumns = maxColumns;
+			this.scoreOnly = scoreOnly;
+		}
+
+		/*
+		 * Method aligns the pair and returns its output.
+		 */
+		String run()throws IOException{
+			StringWriter text = new StringWriter();
+			AlignmentWriter writer = new AlignmentWriter(text, format, maxColumns, false, true);
+			if(scoreOnly)
+				writer.writeScore(idA, idB, engine.score(sequenceA, sequenceB));
+			else
+				engine.align(sequenceA, sequenceB, writer, idA, idB);
+			writer.close();
+			return text.toString();
+		}
+	}
+
+	/*
+	 * Constructor for a server on the loopback port with the configuration, which is started by start.
+	 */
+	public AlignmentServer(Properties defaults, int port)throws IOException{
+		this.defaults = defaults;
+		this.config = AlignmentConfig.fromProperties(defaults);
+		this.batchCells = Integer.valueOf(defaults.getProperty("serverBatchCells", "65536"));
+		this.batchSize = Integer.valueOf(defaults.getProperty("serverBatchSize", "64"));
+		this.maxCells = Integer.valueOf(defaults.getProperty("serverMaxCells", "100000000"));
+		int threads = Integer.valueOf(defaults.getProperty("batchThreads", String.valueOf(Runtime.getRuntime().availableProcessors())));
+		int cacheSize = Integer.valueOf(defaults.getProperty("serverCacheSize", "16"));
+		this.profiles = leastRecentlyUsed(cacheSize);
+		this.files = leastRecentlyUsed(cacheSize);
+
+		List<String> allowed = new ArrayList<String>(); //The files of the configuration and the listed ones.
+		for(String key : Arrays.asList("weightMatrixFile", "gapPenaltyFile", "sequenceInputFile")){
+			if(defaults.getProperty(key) != null)
+				allowed.add(defaults.getProperty(key));
+		}
+		if(defaults.getProperty("serverFiles") != null)
+			allowed.addAll(Arrays.asList(defaults.getProperty("serverFiles").split(",")));
+		for(String file : allowed)
+			allowedFiles.add(new File(file).getCanonicalPath());
+
+		this.workers = Executors.newFixedThreadPool(threads, daemon("alignment-worker"));
+		this.requests = Executors.newCachedThreadPool(daemon("alignment-request"));
+		this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+		server.createContext("/align", this::align);
+		server.createContext("/stats", this::stats);
+		server.setExecutor(requests);
+	}
+
+	/*
+	 * Helper method that returns a factory of daemon threads with the name and a number.
+	 */
+	private static ThreadFactory daemon(String name){
+		AtomicInteger count = new AtomicInteger();
+		return runnable -> {
+			Thread thread = new Thread(runnable, name + "-" + count.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		};
+	}
+
+	/*
+	 * Helper method that returns a map that drops its least recently used entry past maxEntries, used while synchronized on it.
+	 */
+	private static <V> Map<String,V> leastRecentlyUsed(int maxEntries){
+		return new LinkedHashMap<String,V>(16, 0.75f, true){
+			protected boolean removeEldestEntry(Map.Entry<String,V> eldest){
+				return size() > maxEntries;
+			}
+		};
+	}
+
+	/*
+	 * Method starts answering requests and the batcher.
+	 */
+	public void start(){
+		Thread batcher = new Thread(this::batch, "alignment-batcher");
+		batcher.setDaemon(true);
+		batcher.start();
+		server.start();
+	}
+
+	/*
+	 * Method stops answering requests, waiting at most delaySeconds for the ones in flight.
+	 */
+	public void stop(int delaySeconds){
+		server.stop(delaySeconds);
+		requests.shutdown();
+		workers.shutdown();
+	}
+
+	/*
+	 * Returns the port the server listens on, useful when it was started on port 0.
+	 */
+	public int getPort(){
+		return server.getAddress().getPort();
+	}
+
+	/*
+	 * Helper method run by the batcher thread, which takes the waiting pairs off the queue in batches and gives each batch to a worker.
+	 */
+	private void batch(){
+		List<Job> jobs = new ArrayList<Job>(batchSize);
+		while(true){
+			try{
+				jobs.add(queue.take()); //Waits for the first pair, then takes whatever else is already waiting.
+			}
+			catch(InterruptedException e){
+				return;
+			}
+			queue.drainTo(jobs, batchSize - 1);
+			List<Job> batch = new ArrayList<Job>(jobs);
+			jobs.clear();
+			batchCount.increment();
+			batchedCount.add(batch.size());
+			workers.execute(() -> {
+				for(Job job : batch){
+					try{
+						job.answer.complete(job.run());
+					}
+					catch(Throwable e){ //Even an Error has to answer the request waiting on the job.
+						job.answer.completeExceptionally(e);
+					}
+				}
+			});
+		}
+	}
+
+	/*
+	 * Helper method that answers POST /align.
+	 */
+	private void align(HttpExchange exchange)throws IOException{
+		requestCount.increment();
+		try{
+			if(!exchange.getRequestMethod().equals("POST")){
+				respond(exchange, 405, "Error use POST\n");
+				return;
+			}
+			Properties request = parseRequest(exchange.getRequestBody());
+			Job job = toJob(request);
+			String answer;
+			if((long) job.sequenceA.length * job.sequenceB.length <= batchCells){
+				queue.add(job);
+				answer = job.answer.get();
+			}
+			else
+				answer = job.run();
+			respond(exchange, 200, answer);
+		}
+		catch(BadRequest e){
+			respond(exchange, 400, e.getMessage() + "\n");
+		}
+		catch(IOException | IllegalArgumentException e){
+			fail(exchange, 400, e);
+		}
+		catch(ExecutionException e){
+			fail(exchange, e.getCause() instanceof Error ? 500 : 400, e.getCause());
+		}
+		catch(Error e){ //Such as running out of memory or stack on a large pair, the exchange is still answered.
+			fail(exchange, 500, e);
+		}
+		catch(InterruptedException e){
+			Thread.currentThread().interrupt();
+			respond(exchange, 503, "Error server is stopping\n");
+		}
+	}
+
+	/*
+	 * Helper method that answers a request that failed with a generic message of the status, since the message of the error may quote a
+	 * file, and logs the error on standard error.
+	 */
+	private static void fail(HttpExchange exchange, int status, Throwable error)throws IOException{
+		System.err.println("Error in request: " + error);
+		respond(exchange, status, status == 500 ? "Error the server could not align the pair\n" : "Error invalid request\n");
+	}
+
+	/*
+	 * Helper method that answers GET /stats.
+	 */
+	private void stats(HttpExchange exchange)throws IOException{
+		int profileCount;
+		int fileCount;
+		synchronized(profiles){
+			profileCount = profiles.size();
+		}
+		synchronized(files){
+			fileCount = files.size();
+		}
+		long batches = batchCount.sum();
+		respond(exchange, 200, "requests\t" + requestCount.sum() + "\nbatches\t" + batches + "\nbatched_pairs\t" + batchedCount.sum()
+			+ "\nmean_batch_size\t" + (batches > 0 ? (double) batchedCount.sum() / batches : 0) + "\nscoring_profiles\t" + profileCount
+			+ "\nsequence_files\t" + fileCount + "\n");
+	}
+
+	/*
+	 * Helper method that sends the status and text and closes the exchange.
+	 */
+	private static void respond(HttpExchange exchange, int status, String text)throws IOException{
+		byte[] body = text.getBytes(StandardCharsets.UTF_8);
+		exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+		exchange.sendResponseHeaders(status, body.length);
+		try(OutputStream out = exchange.getResponseBody()){
+			out.write(body);
+		}
+	}
+
+	/*
+	 * Helper method that reads the key = value lines of the body over the server's configuration, skipping empty lines and # comments.
+	 * Throws a BadRequest for a body over MAX_BODY_BYTES, of which no more is read.
+	 */
+	private Properties parseRequest(InputStream body)throws IOException{
+		byte[] bytes = body.readNBytes(MAX_BODY_BYTES + 1);
+		if(bytes.length > MAX_BODY_BYTES)
+			throw new BadRequest("Error request is over " + MAX_BODY_BYTES + " bytes");
+		Properties request = new Properties(defaults);
+		BufferedReader reader = new BufferedReader(new InputStreamReader(new ByteArrayInputStream(bytes), StandardCharsets.UTF_8));
+		String line;
+		int lineCount = 0;
+		while((line = reader.readLine()) != null){
+			lineCount++;
+			line = line.trim();
+			if(line.isEmpty() || line.startsWith("#"))
+				continue;
+			int equals = line.indexOf('=');
+			if(equals < 0)
+				throw new BadRequest("Error invalid line at: " + lineCount);
+			String key = line.substring(0, equals).trim();
+			if(!KEYS.contains(key))
+				throw new BadRequest("Error invalid option " + key + " at: " + lineCount);
+			request.setProperty(key, line.substring(equals + 1).trim());
+		}
+		return request;
+	}
+
+	/*
+	 * Helper method that turns the request into a pair with the engine of its scoring.
+	 */
+	private Job toJob(Properties request)throws IOException{
+		Alphabet alphabet;
+		try{
+			alphabet = new Alphabet(request.getProperty("alphabet", "ACGT"));
+		}
+		catch(IllegalArgumentException e){
+			throw new BadRequest(e.getMessage());
+		}
+		AlignmentEngine engine = profile(request.getProperty("weightMatrixFile"), request.getProperty("gapPenaltyFile"), alphabet);
+		String format = request.getProperty("outputFormat", "text");
+		if(!(format.equals("text") || format.equals("cigar") || format.equals("tsv") || format.equals("json")))
+			throw new BadRequest("Error invalid outputFormat " + format);
+
+		byte[] sequenceA = sequence(request, "a", "sequenceA", alphabet);
+		byte[] sequenceB = sequence(request, "b", "sequenceB", alphabet);
+		String idA = request.getProperty("a") != null ? "a" : request.getProperty("sequenceA");
+		String idB = request.getProperty("b") != null ? "b" : request.getProperty("sequenceB");
+		long cells = (long) sequenceA.length * sequenceB.length;
+		if(cells > maxCells)
+			throw new BadRequest("Error pair of " + cells + " cells is over serverMaxCells " + maxCells);
+		String columns = request.getProperty("maxColumns", "80");
+		int maxColumns;
+		try{
+			maxColumns = Integer.parseInt(columns);
+		}
+		catch(NumberFormatException e){
+			maxColumns = 0;
+		}
+		if(maxColumns < 1)
+			throw new BadRequest("Error invalid maxColumns " + columns); //Checked here so a bad request never reaches a worker.
+		return new Job(engine, sequenceA, sequenceB, idA, idB, format, maxColumns, request.getProperty("scoreOnly", "false").equals("true"));
+	}
+
+	/*
+	 * Helper method that returns the sequence given by its symbols under the key, or else by its id in the sequence input file.
+	 */
+	private byte[] sequence(Properties request, String symbolsKey, String idKey, Alphabet alphabet)throws IOException{
+		String symbols = request.getProperty(symbolsKey);
+		if(symbols != null){
+			try{
+				return alphabet.encode(symbols.toCharArray());
+			}
+			catch(IllegalArgumentException e){
+				throw new BadRequest(e.getMessage()); //Names a symbol of the request.
+			}
+		}
+
+		String id = request.getProperty(idKey);
+		String file = request.getProperty("sequenceInputFile");
+		if(id == null || file == null)
+			throw new BadRequest("Error no " + symbolsKey + " or " + idKey + " in the request");
+		byte[] sequence = sequences(file, alphabet).get(id);
+		if(sequence == null)
+			throw new BadRequest("Error no sequence with id " + id);
+		return sequence;
+	}
+
+	/*
+	 * Helper method that returns the canonical path of the file, throws a BadRequest when it is not one the server may read.
+	 */
+	private String allowedFile(String key, String file)throws IOException{
+		String path = new File(file).getCanonicalPath();
+		if(!allowedFiles.contains(path))
+			throw new BadRequest("Error " + key + " " + file + " is not served");
+		return path;
+	}
+
+	/*
+	 * Helper method that returns the parsed sequences of the file, parsing it again only when it changed.
+	 */
+	private Map<String,byte[]> sequences(String file, Alphabet alphabet)throws IOException{
+		String path = allowedFile("sequenceInputFile", file);
+		String key = path + "\n" + alphabet.getSymbols();
+		long stamp = new File(path).lastModified();
+		SequenceFile cached;
+		synchronized(files){
+			cached = files.get(key);
+		}
+		if(cached == null || cached.stamp != stamp){ //Parsed outside the lock, two requests may both parse a changed file.
+			cached = new SequenceFile(Parser.parseAllSequences(path, alphabet), stamp);
+			synchronized(files){
+				files.put(key, cached);
+			}
+		}
+		return cached.sequences;
+	}
+
+	/*
+	 * Helper method that returns the engine of the scoring files and alphabet, parsing the files again only when one of them changed.
+	 */
+	private AlignmentEngine profile(String weightMatrixFile, String gapPenaltyFile, Alphabet alphabet)throws IOException{
+		if(weightMatrixFile == null || gapPenaltyFile == null)
+			throw new BadRequest("Error no weightMatrixFile or gapPenaltyFile");
+		String matrixPath = allowedFile("weightMatrixFile", weightMatrixFile);
+		String penaltyPath = allowedFile("gapPenaltyFile", gapPenaltyFile);
+		String key = matrixPath + "\n" + penaltyPath + "\n" + alphabet.getSymbols();
+		long stamp = new File(matrixPath).lastModified() * 31 + new File(penaltyPath).lastModified();
+		Profile cached;
+		synchronized(profiles){
+			cached = profiles.get(key);
+		}
+		if(cached == null || cached.stamp != stamp){ //Parsed outside the lock, two requests may both parse changed files.
+			Matrix weightMatrix = Parser.parseWeightMatrixFile(matrixPath);
+			double[] penalties = Parser.parseGapPenaltyFile(penaltyPath);
+			ScoringScheme scoring = new ScoringScheme(alphabet, weightMatrix, penalties);
+			cached = new Profile(new AlignmentEngine(scoring, config, AlignmentCache.fromProperties(scoring, config)), stamp);
+			synchronized(profiles){
+				profiles.put(key, cached);
+			}
+		}
+		return cached.engine;
+	}
+}
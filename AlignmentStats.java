@@ -0,0 +1,86 @@
+//Author: Nicholas Taylor
+
+/*
+ * Class used for holding the measurements of the last alignment of a SequenceComparison workspace: the time spent allocating and
+ * setting up the base cases, filling the matrix and tracing the alignment back, the number of cells computed, and the bytes of the
+ * matrices. The linear space mode interleaves the fill and the traceback so all of its time is counted as fill. Reused by the
+ * workspace for every alignment, so it must be read before the next one.
+ */
+public class AlignmentStats{
+	String mode = ""; //full, full-short, full-int, linear, banded, bitparallel, or cached when the result came from an AlignmentCache.
+	long initNanos; //Allocation of the matrices and the base cases.
+	long fillNanos; //Filling the matrix.
+	long tracebackNanos; //Tracing the alignment back.
+	long cells; //Cells computed, more than n*m in the linear mode which computes some rows twice.
+	long matrixBytes; //Bytes of the traceback store and score rows of the alignment.
+	long peakMatrixBytes; //Largest matrixBytes of every alignment of the workspace.
+
+	/*
+	 * Helper method that clears the measurements of the previous alignment.
+	 */
+	void reset(String mode){
+		this.mode = mode;
+		initNanos = 0;
+		fillNanos = 0;
+		tracebackNanos = 0;
+		cells = 0;
+		matrixBytes = 0;
+	}
+
+	/*
+	 * Helper method that records the bytes of the matrices of the alignment.
+	 */
+	void setMatrixBytes(long bytes){
+		matrixBytes = bytes;
+		peakMatrixBytes = Math.max(peakMatrixBytes, bytes);
+	}
+
+	/*
+	 * Returns the mode the alignment was computed with, such as full or linear, or cached.
+	 */
+	public String getMode(){
+		return mode;
+	}
+
+	/*
+	 * Returns the nanoseconds spent allocating the matrices and setting up the base cases.
+	 */
+	public long getInitNanos(){
+		return initNanos;
+	}
+
+	/*
+	 * Returns the nanoseconds spent filling the matrix.
+	 */
+	public long getFillNanos(){
+		return fillNanos;
+	}
+
+	/*
+	 * Returns the nanoseconds spent tracing the alignment back.
+	 */
+	public long getTracebackNanos(){
+		return tracebackNanos;
+	}
+
+	/*
+	 * Returns the number of cells computed.
+	 */
+	public long getCells(){
+		return cells;
+	}
+
+	/*
+	 * Returns the bytes of the matrices of the alignment.
+	 */
+	public long getMatrixBytes(){
+		return matrixBytes;
+	}
+
+	/*
+	 * Returns the largest bytes of the matrices of any alignment of the workspace.
+	 */
+	public long getPeakMatrixBytes(){
+		return peakMatrixBytes;
+	}
+}
@@ -0,0 +1,147 @@
+import java.io.*;
+//Author: Nicholas Taylor
+
+/*
+ * Class used for writing alignments through one buffered writer in one of the output formats:
+ *   text  - the score, then the two aligned rows wrapped at maxColumns with a blank line between blocks.
+ *   cigar - the score and the CIGAR string on one line, with = for a match, X for a mismatch, I for a residue of A against a gap
+ *           and D for a residue of B against a gap.
+ *   tsv   - one tab separated row per pair of sequenceA, sequenceB, score and CIGAR.
+ *   json  - one JSON object per line with the ids, score, CIGAR and both aligned rows.
+ * The aligned rows are written straight from the char buffers they were traced into, without building Strings.
+ */
+public class AlignmentWriter implements Closeable{
+	private final Writer out; //Buffered writer of the output.
+	private final String format; //One of text, cigar, tsv or json.
+	private final int maxColumns; //Width of the wrapped text rows.
+	private final boolean labelPairs; //True if the text format names each pair, used when many pairs go to the same output.
+	private final boolean closeOut; //False for standard output, which is only flushed.
+	private final StringBuilder line = new StringBuilder(); //Reused for the CIGAR string and the short lines.
+
+	/*
+	 * Constructor for a writer of the format into out, which is buffered here. Throws an IllegalArgumentException for an unknown format
+	 * or maxColumns below one.
+	 */
+	public AlignmentWriter(Writer out, String format, int maxColumns, boolean labelPairs, boolean closeOut){
+		if(!(format.equals("text") || format.equals("cigar") || format.equals("tsv") || format.equals("json")))
+			throw new IllegalArgumentException("Error invalid output format " + format);
+		if(maxColumns < 1)
+			throw new IllegalArgumentException("Error invalid maxColumns " + maxColumns); //The text blocks would never advance.
+		this.out = out instanceof BufferedWriter ? out : new BufferedWriter(out, 1 << 16);
+		this.format = format;
+		this.maxColumns = maxColumns;
+		this.labelPairs = labelPairs;
+		this.closeOut = closeOut;
+	}
+
+	/*
+	 * Method returns the writer the writeToFile, outputFile, outputFormat and maxColumns properties ask for, which is either the
+	 * output file or standard output.
+	 */
+	public static AlignmentWriter fromProperties(boolean labelPairs)throws IOException{
+		String format = System.getProperty("outputFormat", "text");
+		int maxColumns = Integer.valueOf(System.getProperty("maxColumns", "80"));
+
+		if(System.getProperty("writeToFile", "false").equals("true")){ //For the case of writing to a file.
+			File fileToWrite = new File(System.getProperty("user.dir") + File.separator + System.getProperty("outputFile"));
+			return new AlignmentWriter(new FileWriter(fileToWrite), format, maxColumns, labelPairs, true);
+		}
+		return new AlignmentWriter(new OutputStreamWriter(System.out), format, maxColumns, labelPairs, false);
+	}
+
+	/*
+	 * Method writes the alignment of the pair, whose aligned rows are a[start,end) and b[start,end).
+	 */
+	public void write(String idA, String idB, double score, char[] a, char[] b, int start, int end)throws IOException{
+		switch(format){
+			case "text":
+				if(labelPairs)
+					out.write("Sequences " + idA + " and " + idB + "\n");
+				out.write("Optimal Similarity Score: " + score + "\n");
+				out.write("Optimal Sequence Alignments A and B\n");
+				for(int block = start; block < end; block += maxColumns){ //Writes each block of at most maxColumns columns.
+					int blockEnd = Math.min(block + maxColumns, end);
+					if(block > start)
+						out.write('\n');
+					out.write(a, block, blockEnd - block);
+					out.write('\n');
+					out.write(b, block, blockEnd - block);
+					out.write('\n');
+				}
+				if(labelPairs)
+					out.write('\n');
+				break;
+			case "cigar":
+				if(labelPairs)
+					out.write(idA + " " + idB + " ");
+				out.write(score + " " + cigar(a, b, start, end) + "\n");
+				break;
+			case "tsv":
+				out.write(idA + "\t" + idB + "\t" + score + "\t" + cigar(a, b, start, end) + "\n");
+				break;
+			default:
+				out.write("{\"sequenceA\":\"" + escape(idA) + "\",\"sequenceB\":\"" + escape(idB) + "\",\"score\":" + score
+					+ ",\"cigar\":\"" + cigar(a, b, start, end) + "\",\"alignmentA\":\"");
+				out.write(a, start, end - start);
+				out.write("\",\"alignmentB\":\"");
+				out.write(b, start, end - start);
+				out.write("\"}\n");
+				break;
+		}
+	}
+
+	/*
+	 * Method writes only the score of the pair, for the score only mode.
+	 */
+	public void writeScore(String idA, String idB, double score)throws IOException{
+		switch(format){
+			case "tsv":
+				out.write(idA + "\t" + idB + "\t" + score + "\t\n");
+				break;
+			case "json":
+				out.write("{\"sequenceA\":\"" + escape(idA) + "\",\"sequenceB\":\"" + escape(idB) + "\",\"score\":" + score + "}\n");
+				break;
+			default:
+				out.write("Optimal Similarity Score: " + score + "\n");
+				break;
+		}
+	}
+
+	/*
+	 * Helper method that returns the CIGAR string of the aligned rows, with runs of the same operation merged.
+	 */
+	private String cigar(char[] a, char[] b, int start, int end){
+		line.setLength(0);
+		char previous = 0;
+		int run = 0;
+		for(int k = start; k < end; k++){
+			char op = b[k] == '-' ? 'I' : a[k] == '-' ? 'D' : a[k] == b[k] ? '=' : 'X';
+			if(op != previous && run > 0){
+				line.append(run).append(previous);
+				run = 0;
+			}
+			previous = op;
+			run++;
+		}
+		if(run > 0)
+			line.append(run).append(previous);
+		return line.toString();
+	}
+
+	/*
+	 * Helper method that escapes the quotes and backslashes of an id for JSON.
+	 */
+	private static String escape(String id){
+		return id.replace("\\", "\\\\").replace("\"", "\\\"");
+	}
+
+	/*
+	 * Flushes the output, and closes it unless it is standard output.
+	 */
+	public void close()throws IOException{
+		if(closeOut)
+			out.close();
+		else
+			out.flush();
+	}
+}
@@ -0,0 +1,84 @@
+import java.util.*;
+//Author: Nicholas Taylor
+
+/*
+ * Class used for mapping the symbols of a sequence alphabet, such as ACGT, the IUPAC codes or the amino acids, to compact byte codes. 
+ * The code of a symbol is its position in the alphabet string, which is also its row and column in the weight matrix and its index 
+ * in the gap penalties. 
+ */
+public class Alphabet{
+	private static final int MAX_SYMBOLS = 127; //Codes have to fit into a byte. 
+	private final String symbols; //The symbols in code order. 
+	private final byte[] codes = new byte[128]; //Code of each ASCII character, -1 for the characters not in the alphabet. 
+
+	/*
+	 * Constructor for the alphabet of the given symbols, which must be distinct ASCII characters. 
+	 */
+	public Alphabet(String symbols){
+		if(symbols.length() < 1 || symbols.length() > MAX_SYMBOLS)
+			throw new IllegalArgumentException("Error alphabet must have between 1 and " + MAX_SYMBOLS + " symbols"); 
+
+		Arrays.fill(codes, (byte) -1); 
+		for(int i = 0; i < symbols.length(); i++){
+			char c = symbols.charAt(i); 
+			if(c >= codes.length || c == 'X' || c == '-')
+				throw new IllegalArgumentException("Error invalid alphabet symbol: " + c); //X ends a sequence and - is a gap. 
+			if(codes[c] != -1)
+				throw new IllegalArgumentException("Error repeated alphabet symbol: " + c); 
+			codes[c] = (byte) i; 
+		}
+		this.symbols = symbols; 
+	}
+
+	/*
+	 * Returns the number of symbols in the alphabet. 
+	 */
+	public int size(){
+		return symbols.length(); 
+	}
+
+	/*
+	 * Returns the symbols of the alphabet in code order. 
+	 */
+	public String getSymbols(){
+		return symbols; 
+	}
+
+	/*
+	 * Returns the code of the symbol c, or -1 if c is not in the alphabet. 
+	 */
+	public int code(char c){
+		return c < codes.length ? codes[c] : -1; 
+	}
+
+	/*
+	 * Returns the symbol of the code. 
+	 */
+	public char symbol(byte code){
+		return symbols.charAt(code); 
+	}
+
+	/*
+	 * Method encodes the sequence into codes, throwing an IllegalArgumentException at the first symbol not in the alphabet. 
+	 */
+	public byte[] encode(char[] sequence){
+		byte[] encoded = new byte[sequence.length]; 
+		for(int i = 0; i < sequence.length; i++){
+			int code = code(sequence[i]); 
+			if(code == -1)
+				throw new IllegalArgumentException("Error invalid symbol " + sequence[i] + " at position " + (i+1)); 
+			encoded[i] = (byte) code; 
+		}
+		return encoded; 
+	}
+
+	/*
+	 * Method decodes the codes back into their symbols. 
+	 */
+	public char[] decode(byte[] sequence){
+		char[] decoded = new char[sequence.length]; 
+		for(int i = 0; i < sequence.length; i++)
+			decoded[i] = symbols.charAt(sequence[i]); 
+		return decoded; 
+	}
+}
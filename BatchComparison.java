@@ -0,0 +1,199 @@
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+//Author: Nicholas Taylor
+
+/*
+ * Class used for the batch mode, which compares every query sequence of the input file with every target sequence on a thread pool
+ * and writes the matrix of scores or distances. The queryIds and targetIds properties are comma separated ids and default to every
+ * sequence in the file. When the queries and targets are the same and the weight matrix is symmetric only the upper triangle is
+ * computed and mirrored. The distance of a pair is (S(a,a) + S(b,b)) / 2 - S(a,b), which is 0 for identical sequences.
+ * If alignmentsOutputFile is set the alignment of every computed pair is written there as well, in the format of outputFormat.
+ * With debugMode the pair and cell counters and a histogram of the time per pair are written to statsOutputFile.
+ */
+public class BatchComparison{
+
+	/*
+	 * Method compares the sequences and writes the matrix to matrixOutputFile, or standard output when it is not set.
+	 */
+	public static void run(AlignmentEngine engine, Map<String,byte[]> sequences)throws IOException{
+		ScoringScheme scoring = engine.getScoring();
+		List<String> queries = selectIds(sequences, System.getProperty("queryIds"));
+		List<String> targets = selectIds(sequences, System.getProperty("targetIds"));
+		boolean triangle = queries.equals(targets) && scoring.isSymmetric(); //Only half of a symmetric matrix needs computing.
+		boolean distance = System.getProperty("matrixType", "score").equals("distance");
+		String alignmentsFile = System.getProperty("alignmentsOutputFile");
+		String format = System.getProperty("outputFormat", "text");
+		int maxColumns = Integer.valueOf(System.getProperty("maxColumns", "80"));
+		int threads = Integer.valueOf(System.getProperty("batchThreads", String.valueOf(Runtime.getRuntime().availableProcessors())));
+		boolean debug = System.getProperty("debugMode", "false").equals("true");
+		LatencyHistogram latencies = debug ? new LatencyHistogram() : null; //Time of each pair, only kept in the debugMode.
+		LongAdder cells = new LongAdder(); //Cells of every computed pair.
+
+		double[][] scores = new double[queries.size()][targets.size()];
+
+		long start = System.nanoTime();
+		long pairs = 0;
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		Writer alignments = alignmentsFile == null ? null : new BufferedWriter(new FileWriter(alignmentsFile), 1 << 16);
+		try{
+			List<Future<String>> rows = new ArrayList<Future<String>>();
+			for(int i = 0; i < queries.size(); i++){ //One task per query row.
+				int row = i;
+				int first = triangle ? i : 0;
+				pairs += targets.size() - first;
+				rows.add(pool.submit(() -> compareRow(engine, sequences, queries, targets, row, first, scores, alignments != null, format, maxColumns,
+					latencies, cells)));
+			}
+			for(Future<String> row : rows){ //Waits for the rows in order so the alignments file follows the matrix order.
+				String text = row.get();
+				if(alignments != null)
+					alignments.write(text);
+			}
+		}
+		catch(InterruptedException e){
+			Thread.currentThread().interrupt();
+			throw new IOException("Error batch comparison was interrupted");
+		}
+		catch(ExecutionException e){
+			throw new IOException("Error in batch comparison: " + e.getCause().getMessage());
+		}
+		finally{
+			pool.shutdown();
+			if(alignments != null)
+				alignments.close();
+		}
+
+		if(triangle){ //Mirrors the upper triangle into the lower one.
+			for(int i = 0; i < queries.size(); i++){
+				for(int j = 0; j < i; j++)
+					scores[i][j] = scores[j][i];
+			}
+		}
+
+		if(distance)
+			toDistances(engine, sequences, queries, targets, scores);
+
+		double seconds = (System.nanoTime() - start) / 1e9;
+		writeMatrix(queries, targets, scores);
+		System.err.println("Compared " + pairs + " pairs in " + seconds + " s (" + (pairs / seconds) + " pairs/s)"); //Kept off standard output, which may be the matrix.
+		if(debug)
+			writeStats(System.getProperty("statsOutputFile", "batch-stats.tsv"), pairs, cells.sum(), seconds, threads, latencies, engine.getCache());
+	}
+
+	/*
+	 * Helper method that returns the ids of the comma separated list, or every id of the file when the list is not set.
+	 */
+	static List<String> selectIds(Map<String,byte[]> sequences, String list)throws IOException{
+		if(list == null)
+			return new ArrayList<String>(sequences.keySet());
+
+		List<String> ids = new ArrayList<String>();
+		for(String id : list.split(",")){
+			if(!sequences.containsKey(id))
+				throw new IOException("Error no sequence with id " + id);
+			ids.add(id);
+		}
+		return ids;
+	}
+
+	/*
+	 * Helper method that scores the query row against the targets from first on, returning the text of the alignments when they are wanted.
+	 * Counts the cells of every pair and records the time of each when latencies is not null.
+	 */
+	private static String compareRow(AlignmentEngine engine, Map<String,byte[]> sequences, List<String> queries, List<String> targets,
+		int row, int first, double[][] scores, boolean withAlignments, String format, int maxColumns, LatencyHistogram latencies,
+		LongAdder cells)throws IOException{
+
+		byte[] query = sequences.get(queries.get(row));
+		StringWriter text = new StringWriter();
+		AlignmentWriter writer = new AlignmentWriter(text, format, maxColumns, true, true); //Rows are buffered then written in matrix order.
+
+		for(int j = first; j < targets.size(); j++){
+			byte[] target = sequences.get(targets.get(j));
+			long start = System.nanoTime();
+			if(withAlignments){ //The alignment gives the score as well.
+				AlignmentResult result = engine.align(query, target);
+				scores[row][j] = result.getScore();
+				result.write(writer, queries.get(row), targets.get(j));
+			}
+			else
+				scores[row][j] = engine.score(query, target);
+			if(latencies != null)
+				latencies.record(System.nanoTime() - start);
+			cells.add((long) query.length * target.length);
+		}
+		writer.close();
+		return text.toString();
+	}
+
+	/*
+	 * Helper method that turns the scores into distances using the score of each sequence against itself.
+	 */
+	private static void toDistances(AlignmentEngine engine, Map<String,byte[]> sequences, List<String> queries, List<String> targets,
+		double[][] scores){
+
+		Map<String,Double> selfScores = new HashMap<String,Double>();
+		for(String id : queries)
+			selfScores.put(id, engine.score(sequences.get(id), sequences.get(id)));
+		for(String id : targets)
+			selfScores.put(id, engine.score(sequences.get(id), sequences.get(id)));
+
+		for(int i = 0; i < queries.size(); i++){
+			for(int j = 0; j < targets.size(); j++)
+				scores[i][j] = (selfScores.get(queries.get(i)) + selfScores.get(targets.get(j))) / 2 - scores[i][j];
+		}
+	}
+
+	/*
+	 * Helper method that writes the counters of the run and of the cache, when there is one, and the histogram of the time per pair as
+	 * tab separated lines.
+	 */
+	private static void writeStats(String file, long pairs, long cells, double seconds, int threads, LatencyHistogram latencies,
+		AlignmentCache cache)throws IOException{
+
+		PrintWriter pw = new PrintWriter(new BufferedWriter(new FileWriter(file)));
+		try{
+			pw.println("pairs\t" + pairs);
+			pw.println("cells\t" + cells);
+			pw.println("threads\t" + threads);
+			pw.println("seconds\t" + seconds);
+			pw.println("pairs_per_second\t" + pairs / seconds);
+			pw.println("cells_per_second\t" + cells / seconds);
+			if(cache != null)
+				cache.write(pw);
+			latencies.write(pw);
+		}
+		finally{
+			pw.close();
+		}
+	}
+
+	/*
+	 * Helper method that writes the matrix as tab separated rows with the target ids across the top and the query ids down the side.
+	 */
+	private static void writeMatrix(List<String> queries, List<String> targets, double[][] scores)throws IOException{
+		String file = System.getProperty("matrixOutputFile");
+		PrintWriter pw = file == null ? new PrintWriter(new BufferedWriter(new OutputStreamWriter(System.out)))
+			: new PrintWriter(new BufferedWriter(new FileWriter(file)));
+
+		StringBuilder line = new StringBuilder();
+		for(String id : targets)
+			line.append('\t').append(id);
+		pw.println(line);
+
+		for(int i = 0; i < queries.size(); i++){
+			line.setLength(0);
+			line.append(queries.get(i));
+			for(int j = 0; j < targets.size(); j++)
+				line.append('\t').append(scores[i][j]);
+			pw.println(line);
+		}
+
+		if(file == null)
+			pw.flush(); //Leaves standard output open.
+		else
+			pw.close();
+	}
+}
@@ -0,0 +1,198 @@
+//Author: Nicholas Taylor
+
+/*
+ * Class used for aligning with Myers' bit-vector algorithm when the scoring scheme is a linear function of the edit distance, see
+ * ScoringScheme.unitCostWeights. The rows of sequence A are packed 64 to a word and each column of sequence B is computed as the
+ * vertical deltas of its scores, +1, 0 or -1, in two bit vectors Pv and Mv, so a column costs a few word operations per 64 rows.
+ * Sequences longer than 64 are split into blocks that hand the horizontal delta of their last row down to the next block.
+ *
+ * For the alignment the deltas of every column are kept, n*m/4 bytes like the TracebackMatrix. The traceback rebuilds the edit
+ * distances of the cells it visits from them and breaks ties in the same order as getMax, up over diagonal over back, so the alignment
+ * is the one the full matrix mode finds. An instance is reused between pairs and is not thread safe.
+ */
+public class BitParallelAligner{
+	private final int alphabetSize; //Number of codes of the scoring.
+	private long[] peq = new long[0]; //Bit vector of the rows of A holding each code, code * blocks + block.
+	private long[] pv = new long[0]; //Current column's positive vertical deltas, one word per block.
+	private long[] mv = new long[0]; //Current column's negative vertical deltas.
+	private long[] columnsP = new long[0]; //Positive vertical deltas of columns 1 to m, (j-1) * blocks + block.
+	private long[] columnsM = new long[0]; //Negative vertical deltas of columns 1 to m.
+	private int blocks; //Words of a column.
+	private int distance; //Edit distance of the last fill.
+
+	/*
+	 * Constructor for the aligner of a scheme with the given number of codes.
+	 */
+	public BitParallelAligner(int alphabetSize){
+		this.alphabetSize = alphabetSize;
+	}
+
+	/*
+	 * Returns true if the vectors of a pair of lengths n and m over alphabetSize codes, and its kept columns when keepColumns is true,
+	 * fit in arrays indexed by int. Pairs that do not fit have to use the DP modes.
+	 */
+	public static boolean fits(int alphabetSize, int n, int m, boolean keepColumns){
+		long words = (n + 63L) >>> 6;
+		return alphabetSize * words <= Integer.MAX_VALUE && (!keepColumns || m * words <= Integer.MAX_VALUE);
+	}
+
+	/*
+	 * Method returns the edit distance of the two sequences of codes, keeping the deltas of every column for trace when keepColumns is true.
+	 * Throws an IllegalArgumentException for a pair that does not fit, see fits.
+	 */
+	public int fill(byte[] sequenceA, byte[] sequenceB, boolean keepColumns){
+		int n = sequenceA.length;
+		int m = sequenceB.length;
+		if(!fits(alphabetSize, n, m, keepColumns))
+			throw new IllegalArgumentException("Error pair of lengths " + n + " and " + m + " is too long for the bit-parallel mode");
+		blocks = (n + 63) >>> 6;
+
+		if(peq.length < alphabetSize * blocks) //Grows the vectors only when needed.
+			peq = new long[alphabetSize * blocks];
+		if(pv.length < blocks){
+			pv = new long[blocks];
+			mv = new long[blocks];
+		}
+		if(keepColumns && columnsP.length < (long) m * blocks){
+			columnsP = new long[m * blocks];
+			columnsM = new long[m * blocks];
+		}
+
+		java.util.Arrays.fill(peq, 0, alphabetSize * blocks, 0);
+		for(int i = 0; i < n; i++) //Marks the rows of each code.
+			peq[sequenceA[i] * blocks + (i >>> 6)] |= 1L << (i & 63);
+		java.util.Arrays.fill(pv, 0, blocks, -1L); //The first column E(i,0) = i goes up by one every row.
+		java.util.Arrays.fill(mv, 0, blocks, 0);
+
+		long lastBit = n == 0 ? 0 : 1L << ((n - 1) & 63); //Row n in the last block.
+		int score = n; //E(n,0).
+
+		for(int j = 0; j < m; j++){
+			int codeOffset = sequenceB[j] * blocks;
+			int hin = 1; //The first row E(0,j) = j goes up by one every column.
+
+			for(int block = 0; block < blocks; block++){
+				long eq = peq[codeOffset + block];
+				long p = pv[block];
+				long mn = mv[block];
+				long xv = eq | mn;
+				if(hin < 0)
+					eq |= 1L;
+				long xh = (((eq & p) + p) ^ p) | eq;
+				long ph = mn | ~(xh | p);
+				long mh = p & xh;
+
+				long high = block == blocks - 1 ? lastBit : 1L << 63; //Horizontal delta of the block's last row.
+				int hout = (ph & high) != 0 ? 1 : (mh & high) != 0 ? -1 : 0;
+
+				ph <<= 1;
+				mh <<= 1;
+				if(hin < 0)
+					mh |= 1L;
+				else if(hin > 0)
+					ph |= 1L;
+				pv[block] = mh | ~(xv | ph);
+				mv[block] = ph & xv;
+				hin = hout;
+			}
+			score += hin;
+
+			if(keepColumns){
+				System.arraycopy(pv, 0, columnsP, j * blocks, blocks);
+				System.arraycopy(mv, 0, columnsM, j * blocks, blocks);
+			}
+		}
+		distance = score;
+		return score;
+	}
+
+	/*
+	 * Helper method that returns E(i,j) - E(i-1,j) from the kept deltas, where the first column always goes up by one.
+	 */
+	private int verticalDelta(int j, int i){
+		if(j == 0)
+			return 1;
+		int word = (j - 1) * blocks + ((i - 1) >>> 6);
+		long bit = 1L << ((i - 1) & 63);
+		return (columnsP[word] & bit) != 0 ? 1 : (columnsM[word] & bit) != 0 ? -1 : 0;
+	}
+
+	/*
+	 * Helper method that returns E(i,j) by adding up the deltas of column j from E(0,j) = j.
+	 */
+	private int columnValue(int j, int i){
+		if(j == 0)
+			return i;
+		int value = j;
+		int base = (j - 1) * blocks;
+		int full = i >>> 6; //Whole words of rows 1 to i.
+		for(int w = 0; w < full; w++)
+			value += Long.bitCount(columnsP[base + w]) - Long.bitCount(columnsM[base + w]);
+		if((i & 63) != 0){
+			long mask = (1L << (i & 63)) - 1;
+			value += Long.bitCount(columnsP[base + full] & mask) - Long.bitCount(columnsM[base + full] & mask);
+		}
+		return value;
+	}
+
+	/*
+	 * Method traces the alignment of the last fill, which must have kept its columns, back into alignmentA and alignmentB, filling
+	 * them backwards from index n+m. Returns the index of the first column of the alignment.
+	 */
+	public int trace(byte[] sequenceA, byte[] sequenceB, Alphabet alphabet, char[] alignmentA, char[] alignmentB){
+		int i = sequenceA.length;
+		int j = sequenceB.length;
+		int current = distance; //E(i,j).
+		int left = j > 0 ? columnValue(j - 1, i) : 0; //E(i,j-1).
+		int k = i + j;
+
+		while(i + j != 0){
+			byte direction;
+			if(i == 0)
+				direction = TracebackMatrix.BACK;
+			else if(j == 0)
+				direction = TracebackMatrix.UP;
+			else{ //Costs of the three moves into (i,j), lowest cost is the highest score.
+				int up = current - verticalDelta(j, i) + 1;
+				int diagonal = left - verticalDelta(j - 1, i) + (sequenceA[i-1] == sequenceB[j-1] ? 0 : 1);
+				int back = left + 1;
+				direction = up <= diagonal && up <= back ? TracebackMatrix.UP : diagonal <= back ? TracebackMatrix.DIAGONAL : TracebackMatrix.BACK;
+			}
+
+			k--;
+			switch(direction){
+				case TracebackMatrix.UP:
+					alignmentA[k] = alphabet.symbol(sequenceA[i-1]);
+					alignmentB[k] = '-';
+					current -= verticalDelta(j, i);
+					if(j > 0)
+						left -= verticalDelta(j - 1, i);
+					i--;
+					break;
+				case TracebackMatrix.DIAGONAL:
+					alignmentA[k] = alphabet.symbol(sequenceA[i-1]);
+					alignmentB[k] = alphabet.symbol(sequenceB[j-1]);
+					current = left - verticalDelta(j - 1, i);
+					i--;
+					j--;
+					left = j > 0 ? columnValue(j - 1, i) : 0;
+					break;
+				default:
+					alignmentA[k] = '-';
+					alignmentB[k] = alphabet.symbol(sequenceB[j-1]);
+					current = left;
+					j--;
+					left = j > 0 ? columnValue(j - 1, i) : 0;
+					break;
+			}
+		}
+		return k;
+	}
+
+	/*
+	 * Returns the bytes of the kept columns of a n x m alignment, used to decide if they fit into memory.
+	 */
+	public static long bytesNeeded(int n, int m){
+		return 2L * m * ((n + 63) >>> 6) * Long.BYTES;
+	}
+}
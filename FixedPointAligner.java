@@ -0,0 +1,183 @@
+//Author: Nicholas Taylor
+
+/*
+ * Class used for filling the matrix with fixed point scores instead of doubles. The weight matrix and gap penalties are multiplied by
+ * 10^decimals and rounded to ints, and the rows are shorts when every score of the pair fits into a short or ints otherwise, which
+ * quarters or halves the bytes each cell moves. A cell (i,j) is at most (i+j) times the largest step a move can add per residue, the
+ * gap penalty or half a weight, so fits checks the whole pair before it is filled and the scores can never overflow. The score is
+ * divided by 10^decimals on the way out. The rows are reused between calls and only grow, so an instance is not thread safe.
+ */
+public class FixedPointAligner{
+	private final int decimals; //Decimals kept of every value.
+	private final int scale; //10^decimals, the fixed point value of 1.
+	private final int[] substitution; //Flat weight matrix in fixed point.
+	private final int[] gapPenalties; //Gap penalty of each code in fixed point.
+	private final int alphabetSize; //Number of codes of the scoring.
+	private final long largestStep; //Most a move can change a cell per residue it covers.
+	private int[] intRow = new int[0]; //Rolling row of the int fill.
+	private short[] shortRow = new short[0]; //Rolling row of the short fill.
+
+	/*
+	 * Constructor for the aligner of the scoring scheme kept to the given number of decimals, throws an IllegalArgumentException when a
+	 * value does not fit into an int at that many decimals.
+	 */
+	public FixedPointAligner(ScoringScheme scoring, int decimals){
+		if(decimals < 0 || decimals > 9)
+			throw new IllegalArgumentException("Error invalid scoreDecimals " + decimals);
+		int scale = 1;
+		for(int d = 0; d < decimals; d++)
+			scale *= 10;
+		this.decimals = decimals;
+		this.scale = scale;
+		this.alphabetSize = scoring.size();
+
+		double[] weights = scoring.substitutionTable();
+		double[] gaps = scoring.gapTable();
+		this.substitution = new int[weights.length];
+		this.gapPenalties = new int[gaps.length];
+		long largestWeight = 0;
+		long largestGap = 0;
+		for(int k = 0; k < weights.length; k++){
+			substitution[k] = quantize(weights[k]);
+			largestWeight = Math.max(largestWeight, Math.abs((long) substitution[k]));
+		}
+		for(int k = 0; k < gaps.length; k++){
+			gapPenalties[k] = quantize(gaps[k]);
+			largestGap = Math.max(largestGap, Math.abs((long) gapPenalties[k]));
+		}
+		this.largestStep = Math.max(largestGap, (largestWeight + 1) / 2); //A diagonal move covers two residues.
+	}
+
+	/*
+	 * Helper method that rounds value * scale to an int, throwing an IllegalArgumentException when it does not fit.
+	 */
+	private int quantize(double value){
+		double scaled = Math.rint(value * scale);
+		if(Math.abs(scaled) > Integer.MAX_VALUE / 2)
+			throw new IllegalArgumentException("Error score " + value + " does not fit into an int at scoreDecimals " + decimals);
+		return (int) scaled;
+	}
+
+	/*
+	 * Returns true if every score of a n x m alignment fits into an int, otherwise it has to be aligned with doubles.
+	 */
+	public boolean fits(int n, int m){
+		return (long) (n + m) * largestStep <= Integer.MAX_VALUE;
+	}
+
+	/*
+	 * Returns true if every score of a n x m alignment fits into a short, so fill uses short rows.
+	 */
+	public boolean fitsShort(int n, int m){
+		return (long) (n + m) * largestStep <= Short.MAX_VALUE;
+	}
+
+	/*
+	 * Returns the fixed point score as a double.
+	 */
+	public double toScore(int fixed){
+		return (double) fixed / scale;
+	}
+
+	/*
+	 * Method fills the matrix of the two sequences of codes, which must fit, and returns the fixed point optimal score. The direction of
+	 * every cell past the first row and column is set in directions, unless it is null for the score only. Ties are broken in the same
+	 * order as getMax, up over diagonal over back.
+	 */
+	public int fill(byte[] sequenceA, byte[] sequenceB, TracebackMatrix directions){
+		if(!fits(sequenceA.length, sequenceB.length))
+			throw new ArithmeticException("Error scores of a " + sequenceA.length + " x " + sequenceB.length + " alignment overflow an int");
+		return fitsShort(sequenceA.length, sequenceB.length) ? fillShort(sequenceA, sequenceB, directions)
+			: fillInt(sequenceA, sequenceB, directions);
+	}
+
+	/*
+	 * Helper method that fills the matrix with a rolling row of ints.
+	 */
+	private int fillInt(byte[] sequenceA, byte[] sequenceB, TracebackMatrix directions){
+		if(intRow.length < sequenceB.length + 1) //Grows the row only when needed.
+			intRow = new int[sequenceB.length + 1];
+		int[] row = intRow;
+
+		row[0] = 0;
+		for(int j = 1; j <= sequenceB.length; j++) //Base case of the first row is the gaps of B.
+			row[j] = row[j-1] + gapPenalties[sequenceB[j-1]];
+
+		for(int i = 0; i < sequenceA.length; i++){
+			int gapA = gapPenalties[sequenceA[i]];
+			int rowOffset = sequenceA[i] * alphabetSize; //Start of the row of symbol A in the flat weight matrix.
+			int diagonalValue = row[0]; //Value of the previous row one column back.
+			int left = row[0] + gapA;
+			row[0] = left;
+			for(int j = 1; j <= sequenceB.length; j++){
+				int up = row[j] + gapA;
+				int diagonal = diagonalValue + substitution[rowOffset + sequenceB[j-1]];
+				int back = left + gapPenalties[sequenceB[j-1]];
+				diagonalValue = row[j];
+
+				byte direction;
+				if(up >= diagonal && up >= back){ //Same order as getMax, up over diagonal over back.
+					left = up;
+					direction = TracebackMatrix.UP;
+				}
+				else if(diagonal >= back){
+					left = diagonal;
+					direction = TracebackMatrix.DIAGONAL;
+				}
+				else{
+					left = back;
+					direction = TracebackMatrix.BACK;
+				}
+				if(directions != null)
+					directions.set(i, j-1, direction);
+				row[j] = left;
+			}
+		}
+		return row[sequenceB.length];
+	}
+
+	/*
+	 * Helper method that fills the matrix with a rolling row of shorts, the sums are done in ints and always fit back.
+	 */
+	private int fillShort(byte[] sequenceA, byte[] sequenceB, TracebackMatrix directions){
+		if(shortRow.length < sequenceB.length + 1) //Grows the row only when needed.
+			shortRow = new short[sequenceB.length + 1];
+		short[] row = shortRow;
+
+		row[0] = 0;
+		for(int j = 1; j <= sequenceB.length; j++) //Base case of the first row is the gaps of B.
+			row[j] = (short) (row[j-1] + gapPenalties[sequenceB[j-1]]);
+
+		for(int i = 0; i < sequenceA.length; i++){
+			int gapA = gapPenalties[sequenceA[i]];
+			int rowOffset = sequenceA[i] * alphabetSize; //Start of the row of symbol A in the flat weight matrix.
+			int diagonalValue = row[0]; //Value of the previous row one column back.
+			int left = row[0] + gapA;
+			row[0] = (short) left;
+			for(int j = 1; j <= sequenceB.length; j++){
+				int up = row[j] + gapA;
+				int diagonal = diagonalValue + substitution[rowOffset + sequenceB[j-1]];
+				int back = left + gapPenalties[sequenceB[j-1]];
+				diagonalValue = row[j];
+
+				byte direction;
+				if(up >= diagonal && up >= back){ //Same order as getMax, up over diagonal over back.
+					left = up;
+					direction = TracebackMatrix.UP;
+				}
+				else if(diagonal >= back){
+					left = diagonal;
+					direction = TracebackMatrix.DIAGONAL;
+				}
+				else{
+					left = back;
+					direction = TracebackMatrix.BACK;
+				}
+				if(directions != null)
+					directions.set(i, j-1, direction);
+				row[j] = (short) left;
+			}
+		}
+		return row[sequenceB.length];
+	}
+}
@@ -0,0 +1,137 @@
+import java.util.*;
+//Author: Nicholas Taylor
+
+/*
+ * Class used for re-aligning a growing sequence A, such as a read being appended to, against a fixed sequence B. The fill is row major
+ * over A so the rows of a prefix of A never change when more residues are appended. The aligner keeps the 2 bit directions of every
+ * row computed so far, in segments of rows that are added as A grows so old rows are never copied, and the last row of scores. An
+ * append only fills the new rows, k*m cells for k residues, and the traceback is then the usual n+m steps. Each cell adds up the same
+ * doubles and breaks ties the same way as the full matrix mode so the score and alignment are identical to aligning the whole of A
+ * from scratch. An instance belongs to one growing sequence and is not thread safe.
+ */
+public class IncrementalAligner{
+	private static final int SEGMENT_BYTES = 1 << 20; //Size of each segment of rows.
+
+	private final ScoringScheme scoring; //The alphabet, weight matrix and gap penalties.
+	private final double[] gapPenalties; //Gap penalty table of the scoring indexed by code.
+	private final double[] substitution; //Flat weight matrix of the scoring.
+	private final int alphabetSize; //Number of codes of the scoring.
+	private final byte[] sequenceB; //The fixed sequence.
+	private final double[] row; //S(n,j) of the last row for every j.
+	private final int segmentRows; //Rows of each segment.
+	private final List<TracebackMatrix> segments = new ArrayList<TracebackMatrix>(); //Directions of rows 1 to n past the first column.
+	private byte[] sequenceA = new byte[64]; //The residues of A so far in [0,n), grown by doubling.
+	private int n; //Length of A so far.
+
+	/*
+	 * Constructor for the aligner of a growing sequence against a copy of sequenceB, starting from an empty A.
+	 */
+	public IncrementalAligner(ScoringScheme scoring, byte[] sequenceB){
+		this.scoring = scoring;
+		this.gapPenalties = scoring.gapTable();
+		this.substitution = scoring.substitutionTable();
+		this.alphabetSize = scoring.size();
+		this.sequenceB = Arrays.copyOf(sequenceB, sequenceB.length);
+		this.segmentRows = Math.max(1, SEGMENT_BYTES / Math.max(1, (sequenceB.length + 3) / 4));
+
+		this.row = new double[sequenceB.length + 1];
+		for(int j = 1; j <= sequenceB.length; j++) //Base case of the first row is the gaps of B.
+			row[j] = row[j-1] + gapPenalties[sequenceB[j-1]];
+	}
+
+	/*
+	 * Method appends the residues to sequence A and fills only their rows.
+	 */
+	public void append(byte[] residues){
+		if(sequenceA.length < n + residues.length)
+			sequenceA = Arrays.copyOf(sequenceA, Math.max(2 * sequenceA.length, n + residues.length));
+
+		int m = sequenceB.length;
+		for(byte code : residues){
+			int i = n; //Row i+1 of the matrix.
+			sequenceA[n++] = code;
+			if(i % segmentRows == 0)
+				segments.add(new TracebackMatrix(segmentRows, m, false));
+			TracebackMatrix segment = segments.get(i / segmentRows);
+			int segmentRow = i % segmentRows;
+
+			double gapA = gapPenalties[code];
+			int rowOffset = code * alphabetSize; //Start of the row of symbol A in the flat weight matrix.
+			double diagonalValue = row[0]; //S(i,0).
+			double left = row[0] + gapA; //S(i+1,0).
+			row[0] = left;
+			for(int j = 1; j <= m; j++){
+				double up = row[j] + gapA;
+				double diagonal = diagonalValue + substitution[rowOffset + sequenceB[j-1]];
+				double back = left + gapPenalties[sequenceB[j-1]];
+				diagonalValue = row[j];
+
+				byte direction;
+				if(up >= diagonal && up >= back){ //Same order as getMax, up over diagonal over back.
+					left = up;
+					direction = TracebackMatrix.UP;
+				}
+				else if(diagonal >= back){
+					left = diagonal;
+					direction = TracebackMatrix.DIAGONAL;
+				}
+				else{
+					left = back;
+					direction = TracebackMatrix.BACK;
+				}
+				segment.set(segmentRow, j-1, direction);
+				row[j] = left;
+			}
+		}
+	}
+
+	/*
+	 * Returns the optimal similarity score of A so far against B.
+	 */
+	public double getScore(){
+		return row[sequenceB.length];
+	}
+
+	/*
+	 * Returns the length of A so far.
+	 */
+	public int length(){
+		return n;
+	}
+
+	/*
+	 * Method traces the optimal alignment of A so far against B back through the kept directions and returns it.
+	 */
+	public AlignmentResult getResult(){
+		Alphabet alphabet = scoring.getAlphabet();
+		int i = n;
+		int j = sequenceB.length;
+		char[] alignmentA = new char[i + j];
+		char[] alignmentB = new char[i + j];
+		int k = i + j; //The traceback fills the rows from the back.
+		while(i + j != 0){
+			byte direction = i == 0 ? TracebackMatrix.BACK : j == 0 ? TracebackMatrix.UP
+				: segments.get((i-1) / segmentRows).get((i-1) % segmentRows, j-1); //The first row and column are not stored.
+			k--;
+			switch(direction){
+				case TracebackMatrix.UP:
+					alignmentA[k] = alphabet.symbol(sequenceA[i-1]);
+					alignmentB[k] = '-';
+					i--;
+					break;
+				case TracebackMatrix.DIAGONAL:
+					alignmentA[k] = alphabet.symbol(sequenceA[i-1]);
+					alignmentB[k] = alphabet.symbol(sequenceB[j-1]);
+					i--;
+					j--;
+					break;
+				default:
+					alignmentA[k] = '-';
+					alignmentB[k] = alphabet.symbol(sequenceB[j-1]);
+					j--;
+					break;
+			}
+		}
+		return new AlignmentResult(getScore(), alignmentA, alignmentB, k, n + sequenceB.length);
+	}
+}
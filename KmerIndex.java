@@ -0,0 +1,142 @@
+import java.util.*;
+//Author: Nicholas Taylor
+
+/*
+ * Class used for finding the targets that share the most k-mers with a query, so a search only aligns the few targets that can be
+ * close. Every run of k codes is read as a number in base alphabetSize, and the index is a lookup table with one slot per possible
+ * k-mer holding the targets it occurs in, each target once per distinct k-mer, the way BLAST seeds its search. The table has
+ * alphabetSize^k slots, so k is limited to at most 2^24 of them. Built once and then only read, so it is safe to share between threads.
+ */
+public class KmerIndex{
+	private static final long MAX_SLOTS = 1L << 24; //Largest table, 64 MB of offsets.
+
+	private final int k; //Length of the k-mers.
+	private final int alphabetSize; //Base of the k-mer numbers.
+	private final List<String> ids; //Ids of the targets in index order.
+	private final int[] offsets; //Start of each k-mer's targets in postings, with one more slot for the end.
+	private final int[] postings; //Index of every target holding each k-mer.
+
+	/*
+	 * Constructor for the index of k-mers of the targets, throws an IllegalArgumentException when k is below one or the table would
+	 * have more than 2^24 slots.
+	 */
+	public KmerIndex(Map<String,byte[]> targets, int alphabetSize, int k){
+		if(k < 1 || Math.pow(alphabetSize, k) > MAX_SLOTS)
+			throw new IllegalArgumentException("Error invalid kmerLength " + k + " for an alphabet of " + alphabetSize + " symbols");
+		this.k = k;
+		this.alphabetSize = alphabetSize;
+		this.ids = new ArrayList<String>(targets.keySet());
+
+		int slots = (int) Math.pow(alphabetSize, k);
+		int[] counts = new int[slots + 1];
+		List<int[]> distinct = new ArrayList<int[]>(ids.size());
+		for(String id : ids){ //First pass counts the targets of every k-mer.
+			int[] kmers = distinctKmers(targets.get(id));
+			distinct.add(kmers);
+			for(int kmer : kmers)
+				counts[kmer + 1]++;
+		}
+		for(int slot = 0; slot < slots; slot++) //Running sum turns the counts into offsets.
+			counts[slot + 1] += counts[slot];
+
+		this.offsets = counts;
+		this.postings = new int[counts[slots]];
+		int[] next = Arrays.copyOf(counts, slots);
+		for(int t = 0; t < ids.size(); t++){ //Second pass fills the targets in, in index order.
+			for(int kmer : distinct.get(t))
+				postings[next[kmer]++] = t;
+		}
+	}
+
+	/*
+	 * Returns the default k, the longest whose table has at most 2^16 slots, which is 8 for DNA and 3 for proteins.
+	 */
+	public static int defaultLength(int alphabetSize){
+		int k = 1;
+		while(Math.pow(alphabetSize, k + 1) <= 1 << 16)
+			k++;
+		return k;
+	}
+
+	/*
+	 * Method returns the distinct k-mers of the sequence of codes in increasing order, none when it is shorter than k.
+	 */
+	public int[] distinctKmers(byte[] sequence){
+		if(sequence.length < k)
+			return new int[0];
+
+		int[] kmers = new int[sequence.length - k + 1];
+		int high = (int) Math.pow(alphabetSize, k - 1); //Weight of the code leaving the window.
+		int kmer = 0;
+		for(int i = 0; i < sequence.length; i++){ //Rolls the window one code at a time.
+			if(i >= k)
+				kmer -= sequence[i - k] * high;
+			kmer = kmer * alphabetSize + sequence[i];
+			if(i >= k - 1)
+				kmers[i - k + 1] = kmer;
+		}
+
+		Arrays.sort(kmers);
+		int count = 0;
+		for(int i = 0; i < kmers.length; i++){ //Drops the repeats.
+			if(i == 0 || kmers[i] != kmers[i - 1])
+				kmers[count++] = kmers[i];
+		}
+		return Arrays.copyOf(kmers, count);
+	}
+
+	/*
+	 * Method returns for each target, in index order, the number of distinct k-mers it shares with the query.
+	 */
+	public int[] sharedKmers(byte[] query){
+		int[] shared = new int[ids.size()];
+		for(int kmer : distinctKmers(query)){
+			for(int p = offsets[kmer]; p < offsets[kmer + 1]; p++)
+				shared[postings[p]]++;
+		}
+		return shared;
+	}
+
+	/*
+	 * Method returns the indexes of the targets sharing the most k-mers with the query, at most limit of them and best first, with ties
+	 * in index order. The target at index skip is left out, or none when skip is -1.
+	 */
+	public List<Integer> topCandidates(byte[] query, int limit, int skip){
+		int[] shared = sharedKmers(query);
+		List<Integer> order = new ArrayList<Integer>(shared.length);
+		for(int t = 0; t < shared.length; t++){
+			if(t != skip)
+				order.add(t);
+		}
+		order.sort((x, y) -> shared[y] != shared[x] ? Integer.compare(shared[y], shared[x]) : Integer.compare(x, y));
+		return order.subList(0, Math.min(limit, order.size()));
+	}
+
+	/*
+	 * Returns the id of the target at the index.
+	 */
+	public String getId(int target){
+		return ids.get(target);
+	}
+
+	/*
+	 * Returns the index of the target with the id, or -1 when it is not in the index.
+	 */
+	public int indexOf(String id){
+		return ids.indexOf(id);
+	}
+
+	/*
+	 * Returns the number of targets.
+	 */
+	public int size(){
+		return ids.size();
+	}
+
+	/*
+	 * Returns the length of the k-mers.
+	 */
+	public int getLength(){
+		return k;
+	}
+}
@@ -0,0 +1,58 @@
+import java.io.*;
+import java.util.concurrent.atomic.*;
+//Author: Nicholas Taylor
+
+/*
+ * Class used for counting latencies into power of two buckets of nanoseconds from many threads at once, so the batch mode can report
+ * the spread of the time per pair. Bucket k holds the latencies from 2^k up to 2^(k+1) nanoseconds, which bounds each percentile to
+ * within a factor of two.
+ */
+public class LatencyHistogram{
+	private final AtomicLongArray buckets = new AtomicLongArray(64); //Count of each bucket.
+	private final AtomicLong count = new AtomicLong(); //Number of latencies.
+	private final AtomicLong totalNanos = new AtomicLong(); //Sum of the latencies.
+	private final AtomicLong maxNanos = new AtomicLong(); //Largest latency.
+
+	/*
+	 * Method counts one latency.
+	 */
+	public void record(long nanos){
+		nanos = Math.max(1, nanos);
+		buckets.incrementAndGet(63 - Long.numberOfLeadingZeros(nanos));
+		count.incrementAndGet();
+		totalNanos.addAndGet(nanos);
+		maxNanos.accumulateAndGet(nanos, Math::max);
+	}
+
+	/*
+	 * Returns the upper bound in nanoseconds of the bucket holding the given fraction of the latencies.
+	 */
+	public long percentile(double fraction){
+		long rank = (long) Math.ceil(fraction * count.get());
+		long seen = 0;
+		for(int k = 0; k < buckets.length(); k++){
+			seen += buckets.get(k);
+			if(seen >= rank && seen > 0)
+				return Math.min(maxNanos.get(), (2L << k) - 1);
+		}
+		return maxNanos.get();
+	}
+
+	/*
+	 * Method writes the count, mean, percentiles and every non empty bucket, with times in microseconds.
+	 */
+	public void write(PrintWriter pw){
+		long n = count.get();
+		pw.println("count\t" + n);
+		pw.println("mean_us\t" + (n > 0 ? totalNanos.get() / 1e3 / n : 0));
+		pw.println("p50_us\t" + percentile(0.5) / 1e3);
+		pw.println("p90_us\t" + percentile(0.9) / 1e3);
+		pw.println("p99_us\t" + percentile(0.99) / 1e3);
+		pw.println("max_us\t" + maxNanos.get() / 1e3);
+		pw.println("bucket_from_us\tbucket_to_us\tcount");
+		for(int k = 0; k < buckets.length(); k++){
+			if(buckets.get(k) > 0)
+				pw.println((1L << k) / 1e3 + "\t" + (2L << k) / 1e3 + "\t" + buckets.get(k));
+		}
+	}
+}
@@ -5,18 +5,17 @@ import Jama.*;
 //Author: Nicholas Taylor
 
 /*
- * Class used for parsing the multiple files for the appropriate inputs for the sequence comparison algorithm. 
+ * Class used for parsing the multiple files for the appropriate inputs for the sequence comparison algorithm. Keeps no state between 
+ * calls so files can be parsed on several threads at once. 
  */
 public class Parser{
-	private static Map<String,String> table = new HashMap<String,String>(); //Hash map for the appropriate values in the config file.  
-	private static final int NUM_GAP_PENALTIES = 4; //Constant for the total number of gap penalties for the DNA sequences.  
-	private static char[] sequenceA; //Char array of the sequence A. 
-	private static char[] sequenceB; //Char array of the sequence B. 
+	private static final Map<String,String> table = initTable(); //Hash map for the appropriate values in the config file, never changed.  
 
 	/*
 	 * Helper method for making a HashMap table of possible options the config file can take. 
 	 */
-	private static void initTable(){
+	private static Map<String,String> initTable(){
+		Map<String,String> table = new HashMap<String,String>(); 
 		table.put("sequenceInputFile","");
 		table.put("sequenceA",""); 
 		table.put("sequenceB",""); 
@@ -26,19 +25,67 @@ public class Parser{
 		table.put("writeToFile","");
 		table.put("outputFile","");
 		table.put("debugMode",""); 
+		table.put("alignmentMode",""); 
+		table.put("threads",""); 
+		table.put("vectorKernel",""); 
+		table.put("alphabet",""); 
+		table.put("tracebackStorage",""); 
+		table.put("scoreOnly",""); 
+		table.put("batchMode",""); 
+		table.put("batchThreads",""); 
+		table.put("queryIds",""); 
+		table.put("targetIds",""); 
+		table.put("matrixType",""); 
+		table.put("matrixOutputFile",""); 
+		table.put("alignmentsOutputFile",""); 
+		table.put("outputFormat",""); 
+		table.put("statsOutputFile",""); 
+		table.put("bandWidth",""); 
+		table.put("bitParallel",""); 
+		table.put("scoreType",""); 
+		table.put("scoreDecimals",""); 
+		table.put("cacheSize",""); 
+		table.put("cacheDirectory",""); 
+		table.put("searchMode",""); 
+		table.put("searchTargetFile",""); 
+		table.put("searchCandidates",""); 
+		table.put("kmerLength",""); 
+		table.put("checkpointFile",""); 
+		table.put("checkpointInterval",""); 
+		table.put("resume",""); 
+		table.put("serverMode",""); 
+		table.put("serverPort",""); 
+		table.put("serverBatchCells",""); 
+		table.put("serverMaxCells",""); 
+		table.put("serverBatchSize",""); 
+		table.put("serverCacheSize",""); 
+		table.put("serverFiles",""); 
+		table.put("shardMode",""); 
+		table.put("shardWorkers",""); 
+		table.put("shardCount",""); 
+		table.put("shardRetries",""); 
+		table.put("shardDirectory",""); 
+		return Collections.unmodifiableMap(table); 
 	}
 			
 	/*
 	 * Method used to scan the Configuration file properties and sets them into the System properties. 
 	 */
 	public static void parseConfigFile(File file) throws IOException{
-		initTable(); //inits the hashmap table. 
+		System.getProperties().putAll(parseConfig(file)); 
+	}
+
+	/*
+	 * Method used to scan the Configuration file properties and returns them, without touching the System properties. 
+	 */
+	public static Properties parseConfig(File file) throws IOException{
+		Properties properties = new Properties(); //The options of this file only. 
 
 		boolean writeToFile = false; //Used to determine if config file should be written to a file or not. 
 
 		int lineCount = 0; //Keeps track of the line numbers in the config file.
 
-		System.setProperty("maxColumns","80"); //Sets the default maxColumns to 80. 
+		properties.setProperty("maxColumns","80"); //Sets the default maxColumns to 80. 
 		
 		Scanner sc = new Scanner(file); //Inits the scanner with the conf file.  
 			
@@ -71,11 +118,11 @@ public class Parser{
 				if(writeToFile == true && keyToken.equals("outputFile")){ //If writeToFile is true checks the outputFile value to confirm if its appropriate or not. 
 					if(valueToken.length() < 1)
 						throw new IOException("Error Invalid line at: " + lineCount); //No output file even though was specified. 
-					System.setProperty(keyToken, valueToken); //Sets the config option key with its value from the config with System's property. 
+					properties.setProperty(keyToken, valueToken); //Sets the config option key with its value from the config. 
 				}
 
 				else if(keyToken.equals("outputFile")){	 //If writeToFile is false no needed valueToken needed.  
-					System.setProperty(keyToken, valueToken); //Sets the config option key with its value from the config with System's property. 
+					properties.setProperty(keyToken, valueToken); //Sets the config option key with its value from the config. 
 				}
 
 				else{
@@ -83,12 +130,70 @@ public class Parser{
 					if(valueToken.length() < 1)
 						throw new IOException("Error incomplete line of option at: " + lineCount); 
 
-					System.setProperty(keyToken, valueToken); //Sets the config option key with its value from the config with System's property. 
+					if(keyToken.equals("alignmentMode") && !(valueToken.equals("full") || valueToken.equals("linear") || valueToken.equals("banded") || valueToken.equals("auto")))
+						throw new IOException("Error invalid alignmentMode at: " + lineCount); //Only the full, linear, banded and auto modes exist. 
+
+					if(keyToken.equals("tracebackStorage") && !(valueToken.equals("heap") || valueToken.equals("offheap")))
+						throw new IOException("Error invalid tracebackStorage at: " + lineCount); //The directions are either on or off the heap. 
+
+					if((keyToken.equals("threads") || keyToken.equals("batchThreads") || keyToken.equals("bandWidth") || keyToken.equals("searchCandidates") 
+						|| keyToken.equals("kmerLength") || keyToken.equals("checkpointInterval") || keyToken.equals("serverBatchCells") || keyToken.equals("serverMaxCells") || keyToken.equals("serverBatchSize") || keyToken.equals("serverCacheSize") 
+						|| keyToken.equals("shardWorkers") || keyToken.equals("shardCount") || keyToken.equals("maxColumns")) && !isPositiveInteger(valueToken))
+						throw new IOException("Error invalid " + keyToken + " at: " + lineCount); //Needs at least one of each. 
+
+					if(keyToken.equals("cacheSize") && !(valueToken.equals("0") || isPositiveInteger(valueToken)))
+						throw new IOException("Error invalid cacheSize at: " + lineCount); //0 keeps nothing in memory. 
+
+					if(keyToken.equals("shardRetries") && !(valueToken.equals("0") || isPositiveInteger(valueToken)))
+						throw new IOException("Error invalid shardRetries at: " + lineCount); //0 runs each shard once. 
+
+					if(keyToken.equals("serverPort") && !(valueToken.equals("0") || isPositiveInteger(valueToken) && valueToken.length() <= 5 && Integer.valueOf(valueToken) <= 65535))
+						throw new IOException("Error invalid serverPort at: " + lineCount); //0 picks a free port. 
+
+					if(keyToken.equals("outputFormat") && !(valueToken.equals("text") || valueToken.equals("cigar") || valueToken.equals("tsv") || valueToken.equals("json")))
+						throw new IOException("Error invalid outputFormat at: " + lineCount); //Only the text, cigar, tsv and json formats exist. 
+
+					if((keyToken.equals("debugMode") || keyToken.equals("bitParallel") || keyToken.equals("searchMode") || keyToken.equals("resume") || keyToken.equals("serverMode") 
+						|| keyToken.equals("shardMode")) && !(valueToken.equals("true") || valueToken.equals("false")))
+						throw new IOException("Error invalid " + keyToken + " at: " + lineCount); //Either on or off. 
+
+					if(keyToken.equals("scoreType") && !(valueToken.equals("double") || valueToken.equals("fixed")))
+						throw new IOException("Error invalid scoreType at: " + lineCount); //Either doubles or fixed point. 
+
+					if(keyToken.equals("scoreDecimals") && !(valueToken.length() == 1 && Character.isDigit(valueToken.charAt(0))))
+						throw new IOException("Error invalid scoreDecimals at: " + lineCount); //From 0 to 9 decimals. 
+
+					if(keyToken.equals("matrixType") && !(valueToken.equals("score") || valueToken.equals("distance")))
+						throw new IOException("Error invalid matrixType at: " + lineCount); //Either the scores or the distances. 
+
+					if(keyToken.equals("alphabet")){ //Checks the alphabet has distinct symbols. 
+						try{
+							new Alphabet(valueToken); 
+						}
+						catch(IllegalArgumentException e){
+							throw new IOException(e.getMessage() + " at: " + lineCount); 
+						}
+					}
+
+					properties.setProperty(keyToken, valueToken); //Sets the config option key with its value from the config. 
 				}
 			}
 			else
 			   throw new IOException("Error invalid line at: " + lineCount); //If the keyToken is not in the table is a invalid option.  
 		}
+		return properties; 
+	}
+
+	/*
+	 * Helper method that checks if the value is a whole number of at least 1. 
+	 */
+	private static boolean isPositiveInteger(String value){
+		try{
+			return Integer.parseInt(value) > 0; 
+		}
+		catch(NumberFormatException e){
+			return false; 
+		}
 	}
 
 	/*
@@ -132,90 +237,76 @@ public class Parser{
 	}
 	
 	/*
-	 * Method parses the gap penalty file with each gap penalty associated with A,C,G,and T respectively returned with an double single array. 
+	 * Method parses the gap penalty file with each gap penalty associated with the symbols of the alphabet respectively returned with an double single array. 
 	 */
 	public static double[] parseGapPenaltyFile(String str)throws IOException {
 		Scanner sc = new Scanner(new File(str)); //Creates a scanner object to scan the Gap Penalty file.
 		
-		double[] array = new double[NUM_GAP_PENALTIES] ; //Adds each of the items in the list into a double array. 
+		List<Double> list = new ArrayList<Double>(); //Used to store all the penalties in the file, one for each symbol. 
 		
 		String line = ""; 
 		
 		while(sc.hasNextLine()){ 
-			line = sc.nextLine(); 
+			line = sc.nextLine().trim(); 
 			
 			if(line.length() < 1 || line.charAt(0) == '#') //Checks if the line is empty or is a comment. 
 				continue; 
 
-			String[] penalties = line.split("\\s");  //Splits the weight matrix at the particular row into an array of double Strings. 
+			String[] penalties = line.split("\\s+");  //Splits the line into an array of double Strings. 
 			
-			for(int i = 0; i < array.length; i++){ //converts all the values in the current line into doubles and puts them into a list. 
-				array[i] = (double) Double.valueOf(penalties[i]); 
+			for(int i = 0; i < penalties.length; i++){ //converts all the values in the current line into doubles and puts them into a list. 
+				list.add(Double.valueOf(penalties[i])); 
 			}
 		}
+
+		double[] array = new double[list.size()]; //Adds each of the items in the list into a double array. 
+		for(int i = 0; i < array.length; i++)
+			array[i] = list.get(i); 
 		return array; 
 	}
 
 	/*
-	 * Method used to parse the Sequence Input file and initializes the two sequences A and B. 
+	 * Method used to parse the records of the given ids from the Sequence Input file as codes of the alphabet, rejecting any symbol 
+	 * that is not in the alphabet, returned keyed by id. The ids must match exactly. With an up to date SequenceIndex each sequence 
+	 * is read with one seek, otherwise the file is only read up to the end of the last of the records. 
 	 */
-	public static void parseSequenceInputFile(String str)throws IOException{
-		Scanner sc = new Scanner(new File(str)); //Creates a scanner object to scan the Gap Penalty file.
+	public static Map<String,byte[]> parseSequences(String str, Collection<String> ids, Alphabet alphabet)throws IOException{
+		SequenceIndex index = SequenceIndex.load(str); //Null unless an up to date sidecar index is next to the file. 
 		
-		String line = ""; 
-		while(sc.hasNextLine()){ //Scans the sequence file. 
-			line = sc.nextLine().toUpperCase(); 
-			
-			if(line.length() < 1 || line.charAt(0) == '#') //Checks if the line is empty or is a comment. 
-			  continue;
-			int isSequenceA = line.indexOf(System.getProperty("sequenceA")); //Use to determine if the sequence is for sequenceA 
-				
-			int isSequenceB = line.indexOf(System.getProperty("sequenceB")); //Use to determine if the sequence is for sequenceB
-			
-			if(isSequenceA != -1){ //If the current line is the sequenceA proceed. 
-				line = line.substring(line.lastIndexOf(":")+1).toUpperCase(); //Gets the entire line from the ":" index. 
-				while(sc.hasNextLine()){ //Used to scan the next lines if the entire sequence is not on the entire line. 
-			 	   if(line.indexOf("X") != -1) //Checks if the line has the terminator for the end of the Sequence if so breaks. 
-					  break; 
-				line += sc.nextLine().toUpperCase(); //Otherwise sequence must break to the next line so add the next line into the sequence. 
-			  }
-			  	line = line.substring(0, line.indexOf("X")); //Grabs the entire sequence till the Terminator
-			
-				sequenceA = line.toCharArray(); //converts the string into a array of Chars'. 
-			}
-
-			else if(isSequenceB != -1){ //Checks the current to see if is sequenceB then proceeds. 
-			 	 line = line.substring(line.lastIndexOf(":")+1); //Grabs the entire line from the ":" index. 
-			 
-			 	 while(sc.hasNext()){ 
-			 		if(line.indexOf("X") != -1) //Checks if the line has termiantor for the end of the sequence. 
-					  break; 
-				
-				line += sc.nextLine().toUpperCase(); //If no terminator add the next line to the sequence and repeat. 
-			 }
-			 	line = line.substring(0, line.indexOf("X")); //Grabs the entire sequence until the terminator indicator.  
-				
-				sequenceB = line.toCharArray(); //Converts the string into a char array 
+		Map<String,byte[]> sequences; 
+		SequenceFileReader reader = new SequenceFileReader(str); //Streams the file through memory mapped windows. 
+		try{
+			if(index != null){ //Seeks straight to each sequence. 
+				sequences = new HashMap<String,byte[]>(); 
+				for(String id : ids){
+					byte[] sequence = index.read(reader, id, alphabet); 
+					if(sequence != null)
+						sequences.put(id, sequence); 
+				}
 			}
-
 			else
-			  continue;
+				sequences = reader.read(new HashSet<String>(ids), alphabet); 
+		}
+		finally{
+			reader.close(); 
 		}
-		if(sequenceA == null || sequenceB == null)
+		
+		if(!sequences.keySet().containsAll(ids))
 			throw new IOException("Invalid sequence number specification"); 
+		return sequences; 
 	}
-	
-	/*
-	 * Returns sequence A as char array. 
-	 */
-	public static char[] getSequenceA(){
-		return sequenceA; 
-	}
-	
+
 	/*
-	 * Returns sequence B as char array. 
+	 * Method used to parse every sequence:<id>: record of the Sequence Input file for the batch mode, returned in file order 
+	 * keyed by id with each sequence encoded with the alphabet. 
 	 */
-	public static char[] getSequenceB(){
-		return sequenceB; 
+	public static Map<String,byte[]> parseAllSequences(String str, Alphabet alphabet)throws IOException{
+		SequenceFileReader reader = new SequenceFileReader(str); 
+		try{
+			return reader.read(null, alphabet); 
+		}
+		finally{
+			reader.close(); 
+		}
 	}
 }
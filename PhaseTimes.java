@@ -0,0 +1,38 @@
+import java.io.*;
+import java.util.*;
+//Author: Nicholas Taylor
+
+/*
+ * Class used for the debugMode report of a run, adding up the wall time of each named phase in the order the phases first happen.
+ */
+public class PhaseTimes{
+	private final Map<String,Long> nanos = new LinkedHashMap<String,Long>(); //Time of each phase.
+	private long mark = System.nanoTime(); //End of the last phase.
+
+	/*
+	 * Method adds the time since the end of the last phase to the phase and starts the next one.
+	 */
+	public void lap(String phase){
+		long now = System.nanoTime();
+		add(phase, now - mark);
+		mark = now;
+	}
+
+	/*
+	 * Method adds the nanoseconds to the phase.
+	 */
+	public void add(String phase, long phaseNanos){
+		nanos.merge(phase, phaseNanos, Long::sum);
+	}
+
+	/*
+	 * Method writes the time of every phase in milliseconds, then the cells, cell updates per second over the fill and the peak
+	 * matrix bytes.
+	 */
+	public void write(PrintStream out, long cells, long fillNanos, long peakMatrixBytes){
+		for(Map.Entry<String,Long> phase : nanos.entrySet())
+			out.println("Debug: " + phase.getKey() + ": " + phase.getValue() / 1e6 + " ms");
+		out.println("Debug: cells: " + cells + " (" + (fillNanos > 0 ? cells / (fillNanos / 1e9) : 0) + " cells/s)");
+		out.println("Debug: peak matrix bytes: " + peakMatrixBytes);
+	}
+}
@@ -0,0 +1,81 @@
+//Author: Nicholas Taylor
+
+/*
+ * Class used for computing only the optimal similarity score of two sequences, for screening runs that never look at the alignment.
+ * The score is found with a single rolling row that is reused between calls and only grows, so once it is as long as the longest
+ * sequence seen no more memory is allocated. Each cell adds up the same doubles and breaks ties the same way as the full matrix mode
+ * so the score is identical. A unit cost scheme is scored with the BitParallelAligner instead, see ScoringScheme.unitCostWeights,
+ * and with fixed point settings the row is filled by a FixedPointAligner whenever the pair's scores fit.
+ * An instance is not thread safe, each thread should use its own.
+ */
+public class ScoreOnlyAligner{
+	private final double[] gapPenalties; //Gap penalty table of the scoring indexed by code.
+	private final double[] substitution; //Flat weight matrix of the scoring.
+	private final int alphabetSize; //Number of codes of the scoring.
+	private final double[] unitCost; //Match, mismatch and gap of a unit cost scheme, null for any other scheme or when turned off.
+	private final BitParallelAligner bitParallel; //Column vectors of the unit cost schemes.
+	private final FixedPointAligner fixedPoint; //Fixed point rows, null when the scores are doubles.
+	private double[] row = new double[0]; //Rolling row of scores, grown when a longer sequence B comes along.
+
+	/*
+	 * Constructor for the aligner of the scoring scheme.
+	 */
+	public ScoreOnlyAligner(ScoringScheme scoring){
+		this(scoring, new AlignmentConfig("full", 1, false, false));
+	}
+
+	/*
+	 * Constructor for the aligner of the scoring scheme with the bitParallel, scoreType and scoreDecimals of the settings.
+	 */
+	public ScoreOnlyAligner(ScoringScheme scoring, AlignmentConfig config){
+		this.gapPenalties = scoring.gapTable();
+		this.substitution = scoring.substitutionTable();
+		this.alphabetSize = scoring.size();
+		this.unitCost = config.useBitParallel() ? scoring.unitCostWeights() : null;
+		this.bitParallel = unitCost != null ? new BitParallelAligner(alphabetSize) : null;
+		this.fixedPoint = config.isFixedPoint() ? new FixedPointAligner(scoring, config.getScoreDecimals()) : null;
+	}
+
+	/*
+	 * Method returns the optimal similarity score of the global alignment of the two sequences of codes.
+	 */
+	public double score(byte[] sequenceA, byte[] sequenceB){
+		if(unitCost != null && BitParallelAligner.fits(alphabetSize, sequenceA.length, sequenceB.length, false)){ //Exact, so the same double as the rows give.
+			int distance = bitParallel.fill(sequenceA, sequenceB, false);
+			return (sequenceA.length + sequenceB.length) * (unitCost[0] / 2) - (unitCost[0] - unitCost[1]) * distance;
+		}
+		if(fixedPoint != null && fixedPoint.fits(sequenceA.length, sequenceB.length))
+			return fixedPoint.toScore(fixedPoint.fill(sequenceA, sequenceB, null));
+
+		if(row.length < sequenceB.length + 1) //Grows the row only when needed.
+			row = new double[sequenceB.length + 1];
+		double[] row = this.row;
+
+		row[0] = 0;
+		for(int j = 1; j <= sequenceB.length; j++) //Base case of the first row is the gaps of B.
+			row[j] = row[j-1] + gapPenalties[sequenceB[j-1]];
+
+		for(int i = 0; i < sequenceA.length; i++){
+			double gapA = gapPenalties[sequenceA[i]];
+			int rowOffset = sequenceA[i] * alphabetSize; //Start of the row of symbol A in the flat weight matrix.
+			double diagonalValue = row[0]; //Value of the previous row one column back.
+			double left = row[0] + gapA;
+			row[0] = left;
+			for(int j = 1; j <= sequenceB.length; j++){
+				double up = row[j] + gapA;
+				double diagonal = diagonalValue + substitution[rowOffset + sequenceB[j-1]];
+				double back = left + gapPenalties[sequenceB[j-1]];
+				diagonalValue = row[j];
+
+				if(up >= diagonal && up >= back) //Same order as getMax, up over diagonal over back.
+					left = up;
+				else if(diagonal >= back)
+					left = diagonal;
+				else
+					left = back;
+				row[j] = left;
+			}
+		}
+		return row[sequenceB.length];
+	}
+}
@@ -0,0 +1,139 @@
+import Jama.*;
+//Author: Nicholas Taylor
+
+/*
+ * Class used for holding the scoring of an alphabet as flat lookup tables. The substitution table stores the weight matrix row 
+ * after row so the score of codes a and b is at a*size+b, and the gap table stores the gap penalty of each code. 
+ */
+public class ScoringScheme{
+	private final Alphabet alphabet; //The alphabet the codes come from. 
+	private final double[] substitution; //Flat size x size weight matrix. 
+	private final double[] gapPenalties; //Gap penalty of each code. 
+
+	/*
+	 * Constructor for the scheme, the weight matrix must be size x size and there must be a gap penalty for every symbol of the alphabet. 
+	 */
+	public ScoringScheme(Alphabet alphabet, Matrix weightMatrix, double[] gapPenalties){
+		int size = alphabet.size(); 
+		if(weightMatrix.getRowDimension() != size || weightMatrix.getColumnDimension() != size)
+			throw new IllegalArgumentException("Error weight matrix is " + weightMatrix.getRowDimension() + " x " + weightMatrix.getColumnDimension() 
+				+ " but the alphabet " + alphabet.getSymbols() + " has " + size + " symbols"); 
+		if(gapPenalties.length != size)
+			throw new IllegalArgumentException("Error there are " + gapPenalties.length + " gap penalties but the alphabet " 
+				+ alphabet.getSymbols() + " has " + size + " symbols"); 
+
+		this.alphabet = alphabet; 
+		this.substitution = new double[size * size]; 
+		for(int i = 0; i < size; i++){ //Flattens the weight matrix row by row. 
+			for(int j = 0; j < size; j++)
+				substitution[i * size + j] = weightMatrix.get(i,j); 
+		}
+		this.gapPenalties = gapPenalties.clone(); 
+	}
+
+	/*
+	 * Returns the alphabet of the scheme. 
+	 */
+	public Alphabet getAlphabet(){
+		return alphabet; 
+	}
+
+	/*
+	 * Returns the number of symbols, which is also the row length of the substitution table. 
+	 */
+	public int size(){
+		return alphabet.size(); 
+	}
+
+	/*
+	 * Returns the similarity score of the codes a and b. 
+	 */
+	public double score(byte a, byte b){
+		return substitution[a * alphabet.size() + b]; 
+	}
+
+	/*
+	 * Returns the gap penalty of the code. 
+	 */
+	public double gap(byte code){
+		return gapPenalties[code]; 
+	}
+
+	/*
+	 * Returns true if the weight matrix is symmetric, so that aligning A with B scores the same as aligning B with A. 
+	 */
+	public boolean isSymmetric(){
+		int size = alphabet.size(); 
+		for(int i = 0; i < size; i++){
+			for(int j = i + 1; j < size; j++){
+				if(substitution[i * size + j] != substitution[j * size + i])
+					return false; 
+			}
+		}
+		return true; 
+	}
+
+	/*
+	 * Returns for each code a the most a diagonal move of a against any code b can add over leaving both residues as gaps, the highest 
+	 * s(a,b) - g(a) - g(b), or for each code b against any code a when columns is true. An alignment scores the all gaps score plus the 
+	 * gain of each of its diagonal moves, which bounds the paths a band leaves out. 
+	 */
+	public double[] diagonalGains(boolean columns){
+		int size = alphabet.size(); 
+		double[] gains = new double[size]; 
+		for(int i = 0; i < size; i++){
+			gains[i] = Double.NEGATIVE_INFINITY; 
+			for(int j = 0; j < size; j++){
+				int a = columns ? j : i; 
+				int b = columns ? i : j; 
+				gains[i] = Math.max(gains[i], substitution[a * size + b] - gapPenalties[a] - gapPenalties[b]); 
+			}
+		}
+		return gains; 
+	}
+
+	/*
+	 * Returns {match, mismatch, gap} when every code scores the same match against itself, the same lower mismatch against any other 
+	 * code and has the same gap penalty, with gap = mismatch - match/2, or null otherwise. The score of any alignment of such a scheme 
+	 * is (n+m)*match/2 - (match-mismatch)*E where E is the alignment's unit cost edit distance, so the best alignment is the one with the 
+	 * fewest edits. The values must also be multiples of 1/1024 no larger than 1024, so that every sum of them is exact in a double and 
+	 * the full matrix mode's ties are real ties. 
+	 */
+	public double[] unitCostWeights(){
+		int size = alphabet.size(); 
+		if(size < 2)
+			return null; 
+		double match = substitution[0]; 
+		double mismatch = substitution[1]; 
+		double gap = gapPenalties[0]; 
+		for(int i = 0; i < size; i++){
+			if(gapPenalties[i] != gap)
+				return null; 
+			for(int j = 0; j < size; j++){
+				if(substitution[i * size + j] != (i == j ? match : mismatch))
+					return null; 
+			}
+		}
+		if(!(mismatch < match) || gap != mismatch - match / 2)
+			return null; 
+		for(double value : new double[]{match, mismatch, gap}){
+			if(Math.abs(value) > 1024 || value * 1024 != Math.rint(value * 1024))
+				return null; 
+		}
+		return new double[]{match, mismatch, gap}; 
+	}
+
+	/*
+	 * Returns the flat substitution table for the inner loops, which must not change it. 
+	 */
+	double[] substitutionTable(){
+		return substitution; 
+	}
+
+	/*
+	 * Returns the gap table for the inner loops, which must not change it. 
+	 */
+	double[] gapTable(){
+		return gapPenalties; 
+	}
+}
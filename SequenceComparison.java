@@ -6,168 +6,239 @@ import Jama.*;
 
 /*
  * Class used for generating the optimal alignment between two sequences by performing the Smith-Waterman Global Sequence Comparison algorithm. 
+ * An instance is also the reusable workspace of an AlignmentEngine thread, keeping its rows, traceback and alignment buffers between 
+ * pairs, so it is not thread safe. 
  */
 public class SequenceComparison{
-	private Matrix weightMatrix; //The weight matrix for determining the optimal alignment between the sequences.  
-	private char[] sequenceA; //SequenceA which represents a DNA sequence. 
-	private char[] sequenceB; //SequenceB which represents a DNA sequence. 
-	private double[] gapPenalties; //gapPenalties for each particular nucleotide A,C,G and T. 
+	private final ScoringScheme scoring; //The alphabet, weight matrix and gap penalties for determining the optimal alignment between the sequences.  
+	private final AlignmentConfig config; //The alignment mode, fill threads, vector kernel and traceback storage settings. 
+	private byte[] sequenceA; //Codes of sequenceA which represents a DNA sequence. 
+	private byte[] sequenceB; //Codes of sequenceB which represents a DNA sequence. 
+	private double[] gapPenalties; //Gap penalty table of the scoring indexed by code. 
+	private double[] substitution; //Flat weight matrix of the scoring indexed by code A * alphabetSize + code B. 
+	private int alphabetSize; //Number of codes of the scoring. 
 	
-	private String optimalAlignmentA = ""; //The string representation of the optimalAlignment of sequenceA with respect to 
-	private String optimalAlignmentB = "";  //The other optimal alignment of sequenceB. 
+	private char[] optimalAlignmentA = new char[0]; //Buffer holding the optimalAlignment of sequenceA in [alignmentStart,alignmentEnd). 
+	private char[] optimalAlignmentB = new char[0];  //Buffer holding the other optimal alignment of sequenceB. 
+	private int alignmentStart; //First column of the alignment in the buffers. 
+	private int alignmentEnd; //One past the last column of the alignment in the buffers. 
 	private double optimalSimilarityScore; //Gets the similarityScore between the two optimal Alignments of sequences  A and B.  
-	private double[][] sequenceAnalysisArray;
-	private char[][] directionOfPreviousMax; 
-	private static final int A = 0; //Each of these nucleotide DNA are used to index into the gapPenality as well as the Weight Matrix. 
-	private static final int C = 1; 
-	private static final int G = 2; 
-	private static final int T = 3; 
+	private double[] scoreRow; //Rolling row of scores, holding the last filled row of each column. 
+	private double[] scoreColumn; //Rolling column of scores, holding the last filled column of each row. 
+	private double[] forward = new double[0]; //Rolling rows of the linear mode, shared by every level of the recursion. 
+	private double[] reverse = new double[0]; 
+	private double[] bandRow = new double[0]; //Rolling row of the banded mode indexed by the cell's diagonal less the band's lowest. 
+	private final double[] rowGains; //Most a diagonal move of each code of A or B adds over two gaps, for the bound of the banded mode. 
+	private final double[] columnGains; 
+	private final double[] unitCost; //Match, mismatch and gap of a unit cost scheme, null for any other scheme. 
+	private BitParallelAligner bitParallel; //Kept column deltas of the bit-parallel mode, made when first needed. 
+	private final FixedPointAligner fixedPoint; //Fixed point rows of the full mode, null when the scores are doubles. 
+	private TracebackMatrix directionOfPreviousMax; //Packed direction of the previous max of each cell past the first row and column. 
+	private final AlignmentStats stats = new AlignmentStats(); //Phase times, cells and matrix bytes of the last alignment. 
+	private static final double HEAP_FRACTION = 0.5; //Largest fraction of the free heap the full matrix mode is allowed to take in the auto mode. 
+	private static final int MIN_VECTOR_WIDTH = 64; //Narrowest row worth building the striped profiles for. 
+	private static final boolean VECTOR_API_PRESENT = ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent(); //True when run with --add-modules jdk.incubator.vector. 
 	
 	/*
-	 * Constuctor for init the SequenceComparison instance with its weightMatrix, gapPenalties, and two sequences. 
+	 * Constuctor for init the SequenceComparison instance with its scoring scheme and two sequences encoded with the scheme's alphabet, 
+	 * using the settings of the System properties. 
 	 */
-	public SequenceComparison(Matrix weightMatrix, double[] gapPenalties,
-		char[] sequenceOne, char[] sequenceTwo){ 
+	public SequenceComparison(ScoringScheme scoring, byte[] sequenceOne, byte[] sequenceTwo){ 
 		
-		this.weightMatrix = weightMatrix; //WeightMatrix. 
+		this(scoring, AlignmentConfig.fromProperties()); //Scoring scheme and settings. 
 		
-		this.gapPenalties = new double[gapPenalties.length]; //gapPenalties. 
-
-		for(int i = 0; i < gapPenalties.length; i++){ //Deep copy of the gap Penalities. 
-			this.gapPenalties[i] = gapPenalties[i]; 
-		}
+		this.sequenceA = Arrays.copyOf(sequenceOne, sequenceOne.length); //Copy of the sequenceA. 
 		
-		this.sequenceA = new char[sequenceOne.length]; 
+		this.sequenceB = Arrays.copyOf(sequenceTwo, sequenceTwo.length); //Copy of the sequenceB. 
+	}
+
+	/*
+	 * Constructor for a workspace with no sequences yet, which are given to align. 
+	 */
+	public SequenceComparison(ScoringScheme scoring, AlignmentConfig config){
+		this.scoring = scoring; 
+		this.config = config; 
 		
-		for(int j = 0; j < sequenceOne.length; j++){ //Deep copy of the sequenceA. 
-			this.sequenceA[j] = sequenceOne[j];
+		this.gapPenalties = scoring.gapTable(); //Tables used by the inner loops. 
+		this.substitution = scoring.substitutionTable(); 
+		this.alphabetSize = scoring.size(); 
+		this.rowGains = scoring.diagonalGains(false); 
+		this.columnGains = scoring.diagonalGains(true); 
+		this.unitCost = scoring.unitCostWeights(); 
+		this.fixedPoint = config.isFixedPoint() ? new FixedPointAligner(scoring, config.getScoreDecimals()) : null; 
+	}
+
+	/*
+	 * Method aligns the two sequences of codes reusing the buffers of the previous alignment. The sequences are not copied so they 
+	 * must not change until the alignment has been read. 
+	 */
+	public void align(byte[] sequenceOne, byte[] sequenceTwo){
+		setSequences(sequenceOne, sequenceTwo); 
+		computeOptimalAlignments(); 
+	}
+
+	/*
+	 * Method aligns the two sequences of codes with the full matrix mode, keeping the traceback in the checkpoint's file and saving 
+	 * the row of scores there whenever a checkpoint is due, so a run that dies can resume from the checkpoint's rows on. Always uses 
+	 * doubles on one thread, so the result is the same as the full matrix mode's however many times it was resumed. Throws an 
+	 * IllegalArgumentException when the checkpoint was made for a different pair or scoring. 
+	 */
+	public void align(byte[] sequenceOne, byte[] sequenceTwo, AlignmentCheckpoint checkpoint){
+		if(!checkpoint.isOf(scoring, sequenceOne, sequenceTwo))
+			throw new IllegalArgumentException("Error checkpoint is not of this pair and scoring"); 
+		setSequences(sequenceOne, sequenceTwo); 
+		long start = System.nanoTime(); 
+		stats.reset("checkpointed"); 
+		TracebackMatrix workspaceMatrix = directionOfPreviousMax; //Kept for the next pairs, the file's store is only for this one. 
+		directionOfPreviousMax = checkpoint.getMatrix(); 
+		try{
+			initBaseCases(); 
+			int completed = checkpoint.getCompletedRows(); 
+			if(completed > 0)
+				checkpoint.restoreRow(scoreRow); 
+			
+			long filling = System.nanoTime(); 
+			stats.initNanos = filling - start; 
+			
+			int n = sequenceA.length; 
+			int m = sequenceB.length; 
+			int stripe = Math.max(1, (1 << 22) / Math.max(1, m)); //Rows of about 4M cells between checks for a due checkpoint. 
+			double corner = scoreColumn[completed]; //S(completed,0). 
+			for(int i = completed + 1; i <= n; i += stripe){
+				int end = Math.min(n + 1, i + stripe); 
+				double nextCorner = scoreColumn[end-1]; //S(end-1,0) before the stripe overwrites it. 
+				if(m > 0)
+					fillTile(i, end, 1, m + 1, corner); 
+				corner = nextCorner; 
+				if(end == n + 1 || checkpoint.isDue())
+					checkpoint.save(end - 1, scoreRow); 
+			}
+			optimalSimilarityScore = m > 0 ? scoreRow[m] : scoreColumn[n]; 
+			
+			stats.fillNanos = System.nanoTime() - filling; 
+			stats.cells = (long) (n - completed) * m; 
+			stats.setMatrixBytes((long) (scoreRow.length + scoreColumn.length) * Double.BYTES); //The traceback is in the file. 
+			
+			traceBack(false, 0); 
 		}
-		
-		this.sequenceB = new char[sequenceTwo.length]; 
-		for(int k = 0; k < sequenceTwo.length; k++){ //Deep copy of the sequenceB. 
-			this.sequenceB[k] = sequenceTwo[k]; 
+		finally{ //The workspace never keeps the file's store, whatever was thrown. 
+			directionOfPreviousMax = workspaceMatrix; 
 		}
-		this.sequenceAnalysisArray = new double[this.sequenceA.length+1][this.sequenceB.length+1]; //Creates the sequenceAnalysisArray.
+	}
+
+	/*
+	 * Sets the sequences of the next alignment without copying them, package private for the benchmarks that time the phases apart. 
+	 */
+	void setSequences(byte[] sequenceOne, byte[] sequenceTwo){
+		this.sequenceA = sequenceOne; 
+		this.sequenceB = sequenceTwo; 
+	}
+
+	/*
+	 * Helper method that allocates the packed directionOfPreviousMax store, only done for the full matrix mode, reusing the store 
+	 * of the previous alignment when it is big enough. The store is put outside the heap when the tracebackStorage is offheap. 
+	 */
+	private void allocateMatrices(){
+		allocateMatrices(sequenceA.length, sequenceB.length); 
+	}
+
+	/*
+	 * Helper method that makes the directionOfPreviousMax store rows x cols, reusing the store of the previous alignment when it is big enough. 
+	 */
+	private void allocateMatrices(int rows, int cols){
+		if(directionOfPreviousMax != null && directionOfPreviousMax.resize(rows, cols))
+			return; 
 		
+		this.directionOfPreviousMax = null; //Lets the old store be collected before the bigger one is made. 
+		this.directionOfPreviousMax = new TracebackMatrix(rows, cols, config.isOffHeapTraceback()); //Used to indicate direction of the previous max with 2 bits per cell.
+	}
+
+	/*
+	 * Returns true if the packed direction store and rolling rows fit into the free heap with room to spare for the rest of the program. 
+	 */
+	private boolean fullMatrixFitsInHeap(){
+		return fitsInHeap(TracebackMatrix.bytesNeeded(sequenceA.length, sequenceB.length) 
+			+ (double)(sequenceA.length + sequenceB.length + 2) * Double.BYTES); //2 bits of direction per cell plus the rolling row and column. 
+	}
+
+	/*
+	 * Returns true if the bytes fit into the free heap with room to spare for the rest of the program. 
+	 */
+	private boolean fitsInHeap(double bytesNeeded){
+		Runtime runtime = Runtime.getRuntime(); 
+		double bytesFree = runtime.maxMemory() - (runtime.totalMemory() - runtime.freeMemory()); //Heap that is still available to allocate. 
 		
-		this.directionOfPreviousMax = new char[sequenceAnalysisArray.length][sequenceAnalysisArray[0].length]; //Used to indicate direction of the previous max direction with 'D' being diagonal, 'U' being up, and 'L' being left.
+		return bytesNeeded < bytesFree * HEAP_FRACTION; 
 	}
 	
 	/*
-	 * Helper function that initializes the base cases for the Sequences set such as S(0,0) = 0, S(i,0) = g(uk), and S(0,j) = g(vk). 
+	 * Helper function that initializes the base cases for the Sequences set such as S(0,0) = 0, S(i,0) = g(uk), and S(0,j) = g(vk), 
+	 * into the rolling column and row, which are only reallocated when they are too short. The directions of the first row and column 
+	 * are always back and up so they are not stored. 
 	 */
 	 private void initBaseCases(){
-		sequenceAnalysisArray[0][0] = 0; //Sets the S(0,0) as 0
+		scoreColumn = grow(scoreColumn, sequenceA.length+1); 
+		scoreRow = grow(scoreRow, sequenceB.length+1); 
+		
+		scoreColumn[0] = 0; //Sets the S(0,0) as 0
+		scoreRow[0] = 0; 
 		double gap = 0; //Used as the gap.  
 		
-		for(int i = 0; i < this.sequenceA.length; i++){ //Sets the S(i,0) of the sequenceAnalaysisArray. 		
-			switch(sequenceA[i]){ //Using a switch case for each nucleotide case then adding the gap penalty for that particular nucleotide. 
-				case 'A': gap+=gapPenalties[this.A];
-					   break; 
-				case 'C': gap+=gapPenalties[this.C]; 
-					  break; 
-				case 'G': gap+=gapPenalties[this.G]; 
-					  break;
-				case 'T': gap+=gapPenalties[this.T]; 
-					  break; 
-				default:  
-					  break; 
-			 }
-			 sequenceAnalysisArray[i+1][0] = gap;
-			 directionOfPreviousMax[i+1][0] = 'U'; 
+		for(int i = 0; i < this.sequenceA.length; i++){ //Sets the S(i,0) by adding the gap penalty of each symbol. 		
+			 gap += gapPenalties[sequenceA[i]]; 
+			 scoreColumn[i+1] = gap;
 		}
 		gap = 0; //Reset the gap to 0 for doing the next sequence. 
 		
-		for(int j = 0; j < sequenceB.length; j++){ //Sets the S(0,j) of the sequenceAnalysisArray.
-			switch(sequenceB[j]){
-				case 'A': gap+=gapPenalties[this.A];
-					  break;
-				case 'C': gap+=gapPenalties[this.C]; 
-					  break;
-				case 'G': gap+=gapPenalties[this.G]; 
-					  break;
-			 	case 'T': gap+=gapPenalties[this.T]; 
-					  break; 
-				default:
-					  break; 
-			}
-			sequenceAnalysisArray[0][j+1] = gap; 
-			directionOfPreviousMax[0][j+1] = 'B'; 
+		for(int j = 0; j < sequenceB.length; j++){ //Sets the S(0,j).
+			gap += gapPenalties[sequenceB[j]]; 
+			scoreRow[j+1] = gap; 
 		}
 	 }
-	
+
 	/*
-	 * Helper method for calculating the Gap Penalty of the particular DNA Nucleotide. 
+	 * Helper method that returns the array if it holds at least length values, otherwise a new one that does. 
 	 */
-	private double getGapPenaltyValue(char c){
-		double gap = 0; 
-		switch(c){ //Using a switch statement gets the appropriate gap penalty with the DNA Nucleotide.  
-			case 'A': gap=gapPenalties[this.A];
-				   break;
-			case 'C': gap=gapPenalties[this.C]; 
-				   break;
-			case 'G': gap=gapPenalties[this.G]; 
-				   break;
-			case 'T': gap=gapPenalties[this.T]; 
-				   break; 
-			default:
-				   break; 
-			}
-		return gap;  //Returns the gap penalty. 
+	private static double[] grow(double[] array, int length){
+		return array != null && array.length >= length ? array : new double[length]; 
 	}
 
 	/*
-	 * Helper method to calculate the similarity score between two DNA nucleotides with the weight matrix. 
+	 * Returns the S(i,0) base case of row i, package private for the WavefrontFill which needs the corners of the first column. 
+	 */
+	double getBaseColumnValue(int i){
+		return scoreColumn[i]; 
+	}
+	
+	/*
+	 * Helper method for looking up the Gap Penalty of the code, package private for the StripedScoreKernel. 
 	 */
-	private double similarityScore(char ui, char vi){
-		int i = 0; //Holders for the value of A,C,G,or T
-		int j = 0; //same as above. 
+	double getGapPenaltyValue(byte c){
+		return gapPenalties[c];  //Returns the gap penalty. 
+	}
 
-		switch(ui){ //Using a switch statement gets the appropriate DNA Nucleotide.  
-			case 'A': i=this.A;
-				   break;
-			case 'C': i=this.C; 
-				   break;
-			case 'G': i=this.G; 
-				   break;
-			case 'T': i=this.T; 
-				   break; 
-			default:
-				   break; 
-		}
-		
-		switch(vi){ //Using a switch statement gets the appropriate DNA Nucleotide.  
-			case 'A': j=this.A;
-				   break;
-			case 'C': j=this.C; 
-				   break;
-			case 'G': j=this.G; 
-				   break;
-			case 'T': j=this.T; 
-				   break; 
-			default:
-				   break; 
-		}
-		return weightMatrix.get(i,j); //Returns the weight of the two DNA nucleotides.  
+	/*
+	 * Helper method to look up the similarity score between two codes in the flat weight matrix, package private for the StripedScoreKernel. 
+	 */
+	double similarityScore(byte ui, byte vi){
+		return substitution[ui * alphabetSize + vi]; //Returns the weight of the two symbols.  
 	}
 	
 
 	/*
 	 * Helper method to get the maximum 
 	 */
-	private char getMax(double up, double diagonal, double back){
-		double epsilon = .01;
-
+	private byte getMax(double up, double diagonal, double back){
 		if((up >= diagonal) && (up >= back)){ //If all three are equal up has highest priority. 
-			return 'U'; 
+			return TracebackMatrix.UP; 
 		}
 
 		else if((diagonal >= up) && (diagonal >= back)){ //If up and diagonal equal for max then up is max. 
-			return 'D'; 
+			return TracebackMatrix.DIAGONAL; 
 		}
 		
 		else if((back >= diagonal) && (back >= up)){ //If up and back are equal and up is bigger than diagonal, up is max. 
-			return 'B'; 
+			return TracebackMatrix.BACK; 
 		}
 
 		else{ //Otherwise if diagonal and up is less than Back is max. 
@@ -178,148 +249,685 @@ public class SequenceComparison{
 	}
 
 	/*
-	 * Method computes the Smith-Waterman Global Sequence Comparison Algorithm. 
+	 * Method fills the rows [iStart,iEnd) and columns [jStart,jEnd) of the score matrix, moving the scoreRow down over the tile's 
+	 * columns and the scoreColumn across over the tile's rows. The cells above and to the left of the tile must already be filled and 
+	 * corner is S(iStart-1,jStart-1). Returns S(iStart-1,jEnd-1), the corner of the next tile to the right, which the tile overwrites. 
+	 * Package private so the WavefrontFill can fill tiles on other threads. 
 	 */
-	public void computeOptimalAlignments(){
-		initBaseCases();  //Inits the sequenceAnalaysisArray with the base settings. 
-		
+	double fillTile(int iStart, int iEnd, int jStart, int jEnd, double corner){
 		double up = 0; //Used for representing the value from the left. 
 		
 		double diagonal = 0; //Used for representing the value from the diagonal. 
 		
 		double back = 0; //Used for representing the value of the left. 
 
-		for(int i = 1; i < sequenceA.length+1; i++){ //Iterates through the sequenceAnalysisArray till we reach the furthest bottom right corner. 
-			for(int j = 1; j < sequenceB.length+1; j++){
-				up = sequenceAnalysisArray[i-1][j] + getGapPenaltyValue(sequenceA[i-1]); //Gets the up value.
+		double nextCorner = scoreRow[jEnd-1]; //Top right of the tile before it is overwritten. 
+
+		for(int i = iStart; i < iEnd; i++){ //Iterates through the tile till we reach the furthest bottom right corner. 
+			double gapA = gapPenalties[sequenceA[i-1]]; 
+			int rowOffset = sequenceA[i-1] * alphabetSize; //Start of the row of symbol A in the flat weight matrix. 
+			double diagonalValue = corner; //S(i-1,j-1). 
+			double left = scoreColumn[i]; //S(i,j-1). 
+			
+			for(int j = jStart; j < jEnd; j++){
+				up = scoreRow[j] + gapA; //Gets the up value.
 			
-				diagonal = sequenceAnalysisArray[i-1][j-1] + similarityScore(sequenceA[i-1],sequenceB[j-1]); //Gets the diagonal value. i			   
-				back = sequenceAnalysisArray[i][j-1] + getGapPenaltyValue(sequenceB[j-1]); //Gets the back value. 
+				diagonal = diagonalValue + substitution[rowOffset + sequenceB[j-1]]; //Gets the diagonal value. 
+				back = left + gapPenalties[sequenceB[j-1]]; //Gets the back value. 
 				
-				directionOfPreviousMax[i][j] = getMax(up,diagonal,back); //returns which direction was the max into the char array indicating the direction of the previous max.
+				byte direction = getMax(up,diagonal,back); //returns which direction was the max. 
+				directionOfPreviousMax.set(i-1, j-1, direction); //Packs the direction of the previous max. 
 				
-				switch(directionOfPreviousMax[i][j]){ //Inserts the max value of either the Up, Diagonal, and Back into the current position of the sequenceAnalayisArray. 
-					case 'U': sequenceAnalysisArray[i][j] = up; 
+				diagonalValue = scoreRow[j]; 
+				switch(direction){ //Inserts the max value of either the Up, Diagonal, and Back into the current position of the row. 
+					case TracebackMatrix.UP: left = up; 
 						  break; 
-				    	case 'D': sequenceAnalysisArray[i][j] = diagonal; 
+					case TracebackMatrix.DIAGONAL: left = diagonal; 
 						  break; 
-					case 'B': sequenceAnalysisArray[i][j] = back; 
-						  break; 
-					default: 
+					default: left = back; 
 						  break; 
 				}
+				scoreRow[j] = left; 
 			}
+			corner = scoreColumn[i]; //S(i,jStart-1) is the diagonal of the next row's first cell. 
+			scoreColumn[i] = left; //The tile's last column is the left of the next tile. 
 		}
+		return nextCorner; 
+	}
+
+	/*
+	 * Method computes the Smith-Waterman Global Sequence Comparison Algorithm, with the alignmentMode setting choosing between the 
+	 * full matrix, the linear space mode, or auto which uses the full matrix only when it fits into the heap. A unit cost scheme is 
+	 * aligned with the bit-parallel mode instead in every mode but linear, when its column deltas fit into the heap. 
+	 */
+	public void computeOptimalAlignments(){
+		String mode = config.getAlignmentMode(); //Gets the alignment mode. 
+		AlignmentEvent event = new AlignmentEvent(); //JFR event of the alignment, only kept when a recording wants it. 
+		event.begin(); 
+
+		if(useBitParallel(mode))
+			computeBitParallelAlignments(); 
+		else if(mode.equals("banded"))
+			computeBandedAlignments(); 
+		else if(mode.equals("linear") || (mode.equals("auto") && !fullMatrixFitsInHeap()))
+			computeLinearSpaceAlignments(); 
+		else
+			computeFullMatrixAlignments(); 
+
+		event.end(); 
+		if(event.shouldCommit()){
+			event.lengthA = sequenceA.length; 
+			event.lengthB = sequenceB.length; 
+			event.mode = stats.mode; 
+			event.cells = stats.cells; 
+			event.score = optimalSimilarityScore; 
+			event.initNanos = stats.initNanos; 
+			event.fillNanos = stats.fillNanos; 
+			event.tracebackNanos = stats.tracebackNanos; 
+			event.matrixBytes = stats.matrixBytes; 
+			event.commit(); 
+		}
+	}
+
+	/*
+	 * Helper method that returns true if the pair should be aligned with the BitParallelAligner, which finds the same alignment as the 
+	 * full matrix mode with about 64 times fewer operations but keeps the deltas of every column, n*m/4 bytes. 
+	 */
+	private boolean useBitParallel(String mode){
+		return unitCost != null && config.useBitParallel() && !mode.equals("linear") 
+			&& BitParallelAligner.fits(alphabetSize, sequenceA.length, sequenceB.length, true) //Past int indexes the DP modes take over. 
+			&& fitsInHeap(BitParallelAligner.bytesNeeded(sequenceA.length, sequenceB.length)); 
+	}
+
+	/*
+	 * Method computes the alignment of a unit cost scheme with Myers' bit-vector algorithm. The traceback breaks ties in the same 
+	 * order as getMax and every score of the scheme is exact, so the alignment and the score are the full matrix mode's. 
+	 */
+	private void computeBitParallelAlignments(){
+		long start = System.nanoTime(); 
+		stats.reset("bitparallel"); 
+		if(bitParallel == null)
+			bitParallel = new BitParallelAligner(alphabetSize); 
+		allocateAlignmentBuffers(); 
+
+		long filling = System.nanoTime(); 
+		stats.initNanos = filling - start; 
+		int distance = bitParallel.fill(sequenceA, sequenceB, true); 
+		optimalSimilarityScore = (sequenceA.length + sequenceB.length) * (unitCost[0] / 2) - (unitCost[0] - unitCost[1]) * distance; 
+
+		long tracing = System.nanoTime(); 
+		stats.fillNanos = tracing - filling; 
+		stats.cells = (long) sequenceA.length * sequenceB.length; 
+		stats.setMatrixBytes(BitParallelAligner.bytesNeeded(sequenceA.length, sequenceB.length)); 
+
+		alignmentStart = bitParallel.trace(sequenceA, sequenceB, scoring.getAlphabet(), optimalAlignmentA, optimalAlignmentB); 
+		alignmentEnd = sequenceA.length + sequenceB.length; 
+		stats.tracebackNanos = System.nanoTime() - tracing; 
+	}
+
+	/*
+	 * Method computes the alignment with a rolling row of scores and the full directionOfPreviousMax store, using 2 bits per cell. 
+	 */
+	private void computeFullMatrixAlignments(){
+		fillFullMatrix(); 
+		traceFullMatrix(); 
+	}
+
+	/*
+	 * Method fills the directionOfPreviousMax store and finds the optimal similarity score of the full matrix mode. Package private 
+	 * so the fill and the traceback can be timed apart. 
+	 */
+	void fillFullMatrix(){
+		if(fixedPoint != null && config.getThreads() == 1 && fixedPoint.fits(sequenceA.length, sequenceB.length)){
+			fillFixedPointMatrix(); 
+			return; 
+		}
+		long start = System.nanoTime(); 
+		stats.reset("full"); 
+		
+		allocateMatrices(); //Creates the packed direction store. 
+
+		initBaseCases();  //Inits the rolling row and column with the base settings. 
+		
+		long filling = System.nanoTime(); 
+		stats.initNanos = filling - start; 
+
+		int threads = config.getThreads(); //Number of threads for filling the matrix. 
 		
-		int i = sequenceAnalysisArray.length-1; 
+		if(threads > 1)
+			WavefrontFill.fill(this, sequenceA.length, sequenceB.length, threads); //Fills the matrix in tiles along the anti-diagonals. 
+		else if(sequenceB.length > 0)
+			fillTile(1, sequenceA.length+1, 1, sequenceB.length+1, 0); //Fills the whole matrix as one tile. 
 		
-		int j = sequenceAnalysisArray[0].length-1; 
-		optimalSimilarityScore = sequenceAnalysisArray[i][j]; //(sequenceA[i-1], sequenceB[j-1]); //Gets the optimal similarity score between the two optimal alignments of sequences A and B. 
-		while(i+j != 0){ //Tracing the optimal Alignment back to the origin of the sequenceAnalysisArray. 
-			switch(directionOfPreviousMax[i][j]){ //Following the previous max
-				case 'U': optimalAlignmentA = sequenceA[i-1] + optimalAlignmentA; //Case if the previous max direction was up we set the sequenceA to its nucleoTide but make a gap in sequenceB
-					  optimalAlignmentB = "-" + optimalAlignmentB; 
+		optimalSimilarityScore = sequenceB.length > 0 ? scoreRow[sequenceB.length] : scoreColumn[sequenceA.length]; //Gets the optimal similarity score between the two optimal alignments of sequences A and B. 
+		
+		stats.fillNanos = System.nanoTime() - filling; 
+		stats.cells = (long) sequenceA.length * sequenceB.length; 
+		stats.setMatrixBytes(TracebackMatrix.bytesNeeded(sequenceA.length, sequenceB.length) 
+			+ (long) (scoreRow.length + scoreColumn.length) * Double.BYTES); 
+	}
+
+	/*
+	 * Helper method that fills the directionOfPreviousMax store with the FixedPointAligner's short or int rows instead of doubles, the 
+	 * scores of the pair having been checked to fit. The score is scaled back to a double. 
+	 */
+	private void fillFixedPointMatrix(){
+		long start = System.nanoTime(); 
+		boolean narrow = fixedPoint.fitsShort(sequenceA.length, sequenceB.length); 
+		stats.reset(narrow ? "full-short" : "full-int"); 
+		
+		allocateMatrices(); 
+		
+		long filling = System.nanoTime(); 
+		stats.initNanos = filling - start; 
+		optimalSimilarityScore = fixedPoint.toScore(fixedPoint.fill(sequenceA, sequenceB, directionOfPreviousMax)); 
+		
+		stats.fillNanos = System.nanoTime() - filling; 
+		stats.cells = (long) sequenceA.length * sequenceB.length; 
+		stats.setMatrixBytes(TracebackMatrix.bytesNeeded(sequenceA.length, sequenceB.length) 
+			+ (long) (sequenceB.length + 1) * (narrow ? Short.BYTES : Integer.BYTES)); 
+	}
+
+	/*
+	 * Method traces the optimal alignment back through the directionOfPreviousMax store filled by fillFullMatrix, which it leaves 
+	 * unchanged so it can be traced again. 
+	 */
+	void traceFullMatrix(){
+		traceBack(false, 0); 
+	}
+
+	/*
+	 * Helper method that traces the optimal alignment back through the directionOfPreviousMax store into the alignment buffers. The 
+	 * cell (i,j) is kept in column j-1 of the full matrix store, or in column j-i-low of the banded mode's store when banded is true. 
+	 */
+	private void traceBack(boolean banded, int low){
+		long start = System.nanoTime(); 
+		int i = sequenceA.length; 
+		
+		int j = sequenceB.length; 
+		allocateAlignmentBuffers(); 
+		Alphabet alphabet = scoring.getAlphabet(); 
+		int k = sequenceA.length + sequenceB.length; //The traceback fills the buffers from the back. 
+		while(i+j != 0){ //Tracing the optimal Alignment back to the origin of the matrix. 
+			byte direction = i == 0 ? TracebackMatrix.BACK : j == 0 ? TracebackMatrix.UP 
+				: directionOfPreviousMax.get(i-1, banded ? j-i-low : j-1); //The first row and column are not stored. 
+			k--; 
+			switch(direction){ //Following the previous max
+				case TracebackMatrix.UP: optimalAlignmentA[k] = alphabet.symbol(sequenceA[i-1]); //Case if the previous max direction was up we set the sequenceA to its nucleoTide but make a gap in sequenceB
+					  optimalAlignmentB[k] = '-'; 
 					  i--; //We then move up. 
 				          break; 
-				case 'D': optimalAlignmentA = sequenceA[i-1] + optimalAlignmentA; //Case if the previous max direction was diagonal we set both sequenceA and sequenceB to their nucleoTides. 
-					  optimalAlignmentB = sequenceB[j-1] + optimalAlignmentB; 
+				case TracebackMatrix.DIAGONAL: optimalAlignmentA[k] = alphabet.symbol(sequenceA[i-1]); //Case if the previous max direction was diagonal we set both sequenceA and sequenceB to their nucleoTides. 
+					  optimalAlignmentB[k] = alphabet.symbol(sequenceB[j-1]); 
 					  i--;
 					  j--; //Then move diagonal and continue till we reach s(0,0).     
 					  break;
 
-				case 'B': optimalAlignmentA = "-" + optimalAlignmentA; //Case where the previous max direction was back we set just the sequenceA as a gap and set the sequenceB as its nucleotide DNA sequence.  
-					  optimalAlignmentB = sequenceB[j-1] + optimalAlignmentB; 
+				default: optimalAlignmentA[k] = '-'; //Case where the previous max direction was back we set just the sequenceA as a gap and set the sequenceB as its nucleotide DNA sequence.  
+					  optimalAlignmentB[k] = alphabet.symbol(sequenceB[j-1]); 
 					  j--; //Move back and continue. 
 					  break; 
-				default: 
-					  break; 
 				}
 		}
+		alignmentStart = k; 
+		alignmentEnd = sequenceA.length + sequenceB.length; 
+		stats.tracebackNanos = System.nanoTime() - start; 
 	}
 
-	
 	/*
-	 * Method either prints to standard output or to a given file. 
+	 * Method computes the alignment filling only the cells whose diagonal j-i is within bandWidth of the diagonals from 0 to m-n, 
+	 * with memory for the band only. After each fill the score is checked against the most any path leaving the band could score, 
+	 * and the band is doubled until no such path can tie it. Every optimal path then lies inside the band and every cell the traceback 
+	 * visits has the same value and direction as in the full matrix, so the result is identical. Once the band would cover the whole 
+	 * matrix the full matrix mode is used, or the linear mode when it does not fit into the heap. 
 	 */
-	public void displayOutput()throws IOException{
-			String cols = System.getProperty("maxColumns"); //Gets the max column. 
-			int num_of_cols = (int) Integer.valueOf(cols); //same as above. 
-			
-			String lineA = ""; 
-			String lineB = "";
-			
-			if(System.getProperty("writeToFile").equals("true")){ //For the case of writing to a file. 
-				String absolutePath = System.getProperty("user.dir"); //Get the absolutePath of the directory to write the file. 
-				
-				File fileToWrite = new File(absolutePath +File.separator+System.getProperty("outputFile")); //Create the file to write. 
-			
-				if(!fileToWrite.exists()) //If the file does not yet exist we create it. 
-					fileToWrite.createNewFile(); 
-				
-				PrintWriter pw = new PrintWriter(fileToWrite);  //Create instance of a PrintWriter object from the File object to write into the file. 
-				
-				pw.print("Optimal Similarity Score: " + optimalSimilarityScore); //Write the optimal similarity score. 
-				pw.println(); 
-				pw.print("Optimal Sequence Alignments A and B");
-				pw.println();
-				
-				int count = 0; 
-				for(int i = 0; i < optimalAlignmentA.length(); i++){ //Write the Optimal Alignment Sequence for Sequence A with the desired maximum Columns. 
-					if(count < num_of_cols){
-						lineA +=optimalAlignmentA.charAt(i); 
-						lineB +=optimalAlignmentB.charAt(i); 
-					}
-					else{
-							pw.println(lineA);
-							pw.println(lineB);
-							pw.println(); 
-							count = 0; 
-							lineA = ""; 
-							lineB = ""; 
-							lineA +=optimalAlignmentA.charAt(i); 
-							lineB +=optimalAlignmentB.charAt(i); 
-
-					}
-					count++; 
-				}
+	private void computeBandedAlignments(){
+		int low = Math.min(0, sequenceB.length - sequenceA.length); //Lowest and highest diagonal an alignment has to use. 
+		int high = Math.max(0, sequenceB.length - sequenceA.length); 
+		long cells = 0; //Cells and fill time of every try. 
+		long fillNanos = 0; 
 
-				if(lineA.length() >=1 && lineB.length() >=1){
-						pw.println(lineA); 
-						pw.println(lineB);
-				}
+		for(int width = config.getBandWidth(); ; width *= 2){
+			int bandLow = low - width; 
+			int bandHigh = high + width; 
+			if(bandLow <= -sequenceA.length && bandHigh >= sequenceB.length){ //The band is the whole matrix. 
+				if(fullMatrixFitsInHeap())
+					computeFullMatrixAlignments(); 
+				else
+					computeLinearSpaceAlignments(); 
+				stats.cells += cells; 
+				stats.fillNanos += fillNanos; 
+				return; 
+			}
+			if(!fitsInHeap(TracebackMatrix.bytesNeeded(sequenceA.length, bandHigh - bandLow + 1))){
+				computeLinearSpaceAlignments(); 
+				stats.cells += cells; 
+				stats.fillNanos += fillNanos; 
+				return; 
+			}
 
-				pw.close(); 
+			double score = fillBand(bandLow, bandHigh); 
+			cells += stats.cells; 
+			fillNanos += stats.fillNanos; 
+			if(bandIsOptimal(bandLow, bandHigh, score)){
+				optimalSimilarityScore = score; 
+				traceBack(true, bandLow); 
+				stats.cells = cells; 
+				stats.fillNanos = fillNanos; 
+				return; 
 			}
+		}
+	}
 
-			else{ //The case we do not specify to write to a file and instead which to print to standard out. 	
-				System.out.println("Optimal Similarity Score: " + optimalSimilarityScore);
-				System.out.println("Optimal Sequence Alignments A and B");
-				int count = 0; 
-				for(int i = 0; i < optimalAlignmentA.length(); i++){
-					if(count < num_of_cols){
-						lineA +=optimalAlignmentA.charAt(i);
-						lineB +=optimalAlignmentB.charAt(i);
-					}
-
-					else{
-						System.out.println(lineA);
-						System.out.println(lineB); 
-						System.out.println(); 
-						count = 0;
-						lineA = ""; 
-						lineB = "";
-						lineA +=optimalAlignmentA.charAt(i);
-						lineB +=optimalAlignmentB.charAt(i);
-
-					}
-					count++; 
-				}
-				
-				if(lineA.length() >=1 && lineB.length() >=1){
-						System.out.println(lineA); 
-						System.out.println(lineB);
-				}
+	/*
+	 * Helper method that fills the cells of the diagonals bandLow to bandHigh with the same sums and ties as fillTile, treating the 
+	 * cells outside the band as minus infinity, and returns S(n,m). The directions go into a n x (bandHigh-bandLow+1) store. 
+	 */
+	private double fillBand(int bandLow, int bandHigh){
+		long start = System.nanoTime(); 
+		stats.reset("banded"); 
+		int width = bandHigh - bandLow + 1; 
+		allocateMatrices(sequenceA.length, width); 
+		if(bandRow.length < width + 1)
+			bandRow = new double[width + 1]; 
+		double[] row = bandRow; 
+		Arrays.fill(row, 0, width + 1, Double.NEGATIVE_INFINITY); //row[width] stays minus infinity as the up of the band's last diagonal. 
+
+		double gap = 0; 
+		for(int j = 0; j <= Math.min(sequenceB.length, bandHigh); j++){ //Base case of the first row, S(0,j) on diagonal j. 
+			row[j - bandLow] = gap; 
+			if(j < sequenceB.length)
+				gap += gapPenalties[sequenceB[j]]; 
+		}
+		long filling = System.nanoTime(); 
+		stats.initNanos = filling - start; 
+
+		double columnGap = 0; //S(i,0) of the base case column. 
+		for(int i = 1; i <= sequenceA.length; i++){
+			double gapA = gapPenalties[sequenceA[i-1]]; 
+			int rowOffset = sequenceA[i-1] * alphabetSize; //Start of the row of symbol A in the flat weight matrix. 
+			columnGap += gapA; 
+			int first = Math.max(0, i + bandLow); 
+			int last = Math.min(sequenceB.length, i + bandHigh); 
+			double left = Double.NEGATIVE_INFINITY; //S(i,j-1). 
+
+			if(first == 0){ //The base case column is still inside the band. 
+				left = columnGap; 
+				row[-i - bandLow] = left; 
+				first = 1; 
+			}
+			for(int j = first; j <= last; j++){
+				int d = j - i - bandLow; //Index of the cell's diagonal, S(i-1,j) is at d+1 and S(i-1,j-1) at d. 
+				double up = row[d+1] + gapA; 
+				double diagonal = row[d] + substitution[rowOffset + sequenceB[j-1]]; 
+				double back = left + gapPenalties[sequenceB[j-1]]; 
+
+				byte direction = getMax(up, diagonal, back); 
+				directionOfPreviousMax.set(i-1, d, direction); 
+				left = direction == TracebackMatrix.UP ? up : direction == TracebackMatrix.DIAGONAL ? diagonal : back; 
+				row[d] = left; 
+			}
+			stats.cells += Math.max(0, last - first + 1); 
+		}
+
+		stats.fillNanos = System.nanoTime() - filling; 
+		stats.setMatrixBytes(TracebackMatrix.bytesNeeded(sequenceA.length, width) + (long) row.length * Double.BYTES); 
+		return row[sequenceB.length - sequenceA.length - bandLow]; 
+	}
+
+	/*
+	 * Helper method that returns true if no path leaving the band of diagonals bandLow to bandHigh can score as much as score. A path 
+	 * reaching diagonal bandHigh+1 leaves at least bandHigh+1 residues of B as gaps and one reaching bandLow-1 at least 1-bandLow residues 
+	 * of A, which caps its diagonal moves. Each residue is in at most one diagonal move, so such a path scores at most the all gaps score 
+	 * plus the largest gains of that many residues of A, and of B. A small margin covers the rounding of the sums. 
+	 */
+	private boolean bandIsOptimal(int bandLow, int bandHigh, double score){
+		int n = sequenceA.length; 
+		int m = sequenceB.length; 
+		long above = bandHigh + 1 <= m ? Math.min(n, m - bandHigh - 1) : -1; //Most diagonal moves of a path above the band, -1 for none. 
+		long below = 1 - bandLow <= n ? Math.min(m, n - 1 + bandLow) : -1; //Most diagonal moves of a path below the band. 
+		long diagonals = Math.max(above, below); 
+		if(diagonals < 0)
+			return true; 
+
+		double allGaps = 0; 
+		long[] countsA = new long[alphabetSize]; //Residues of each code. 
+		long[] countsB = new long[alphabetSize]; 
+		for(byte code : sequenceA){
+			allGaps += gapPenalties[code]; 
+			countsA[code]++; 
+		}
+		for(byte code : sequenceB){
+			allGaps += gapPenalties[code]; 
+			countsB[code]++; 
+		}
+
+		double bound = allGaps + Math.min(largestGains(rowGains, countsA, diagonals), largestGains(columnGains, countsB, diagonals)); 
+		double margin = 1e-9 * (Math.abs(allGaps) + Math.abs(bound) + Math.abs(score)) + 1e-12; 
+		return score > bound + margin; 
+	}
+
+	/*
+	 * Helper method that returns the sum of the largest positive gains of at most limit residues, given the count of residues of each code. 
+	 */
+	private static double largestGains(double[] gains, long[] counts, long limit){
+		Integer[] codes = new Integer[gains.length]; 
+		for(int c = 0; c < codes.length; c++)
+			codes[c] = c; 
+		Arrays.sort(codes, (x, y) -> Double.compare(gains[y], gains[x])); //Highest gain first. 
+
+		double sum = 0; 
+		for(int c : codes){
+			if(limit == 0 || gains[c] <= 0)
+				break; 
+			long taken = Math.min(limit, counts[c]); 
+			sum += gains[c] * taken; 
+			limit -= taken; 
+		}
+		return sum; 
+	}
+
+	/*
+	 * Helper method that makes the alignment buffers at least n+m long, the longest an alignment can be, reusing them when they already are. 
+	 */
+	private void allocateAlignmentBuffers(){
+		int length = sequenceA.length + sequenceB.length; 
+		if(optimalAlignmentA.length < length){
+			optimalAlignmentA = new char[length]; 
+			optimalAlignmentB = new char[length]; 
+		}
+	}
+
+	/*
+	 * Method computes an optimal alignment in O(n+m) memory with Hirschberg's divide and conquer. 
+	 */
+	private void computeLinearSpaceAlignments(){
+		long start = System.nanoTime(); 
+		stats.reset("linear"); 
+		
+		allocateAlignmentBuffers(); //Both alignments are at most n+m long. 
+		alignmentStart = 0; 
+		alignmentEnd = 0; //The recursion appends the alignment left to right. 
+		
+		forward = grow(forward, sequenceB.length+1); //Rolling rows shared by every level of the recursion. 
+		reverse = grow(reverse, sequenceB.length+1); 
+		double[] score = new double[1]; //Holds the exact score of the top level. 
+		
+		long filling = System.nanoTime(); 
+		stats.initNanos = filling - start; 
+		
+		hirschberg(0, sequenceA.length, 0, sequenceB.length, forward, reverse, score); 
+		
+		optimalSimilarityScore = score[0]; 
+		stats.fillNanos = System.nanoTime() - filling; //The traceback is part of the recursion. 
+		stats.setMatrixBytes((long) (forward.length + reverse.length) * Double.BYTES); 
+	}
+
+	/*
+	 * Recursive helper that aligns sequenceA[aStart,aEnd) with sequenceB[bStart,bEnd) by splitting A in half and finding the column 
+	 * of B where an optimal path crosses the middle row, appending the alignment of each half in order. When score is not null the 
+	 * forward pass is carried on to the last row so the score is added up in the same order as the full matrix mode. 
+	 */
+	private void hirschberg(int aStart, int aEnd, int bStart, int bEnd, double[] forward, double[] reverse, double[] score){
+		
+		int width = bEnd - bStart; 
+
+		if(aEnd - aStart <= 1 || width == 0){ //A single row or an empty B is small enough for the full matrix. 
+			alignBlock(aStart, aEnd, bStart, bEnd); 
+			if(score != null){
+				forwardLastRow(aStart, aEnd, bStart, bEnd, forward); 
+				score[0] = forward[width]; 
+			}
+			return; 
+		}
+
+		int aMid = (aStart + aEnd) / 2; //Middle row of the sub problem. 
+
+		forwardLastRow(aStart, aMid, bStart, bEnd, forward); //Scores of the top half ending at each column. 
+		reverseFirstRow(aMid, aEnd, bStart, bEnd, reverse); //Scores of the bottom half starting at each column. 
+
+		int bMid = 0; 
+		double best = Double.NEGATIVE_INFINITY; 
+		for(int k = 0; k <= width; k++){ //Finds the column where the path through the middle row scores the highest. 
+			double total = forward[k] + reverse[width-k]; 
+			if(total > best){
+				best = total; 
+				bMid = bStart + k; 
+			}
+		}
+
+		if(score != null){ //Carries the forward rows on to the bottom for the exact score. 
+			forwardRows(aMid, aEnd, bStart, bEnd, forward); 
+			score[0] = forward[width]; 
+		}
+
+		hirschberg(aStart, aMid, bStart, bMid, forward, reverse, null); 
+		hirschberg(aMid, aEnd, bMid, bEnd, forward, reverse, null); 
+	}
+
+	/*
+	 * Helper that fills row[0..bEnd-bStart] with the last row of the score matrix of sequenceA[aStart,aEnd) against sequenceB[bStart,bEnd). 
+	 */
+	private void forwardLastRow(int aStart, int aEnd, int bStart, int bEnd, double[] row){
+		int width = bEnd - bStart; 
+		
+		row[0] = 0; 
+		for(int j = 1; j <= width; j++) //Base case of the first row is the gaps of B. 
+			row[j] = row[j-1] + getGapPenaltyValue(sequenceB[bStart+j-1]); 
+
+		forwardRows(aStart, aEnd, bStart, bEnd, row); 
+	}
+
+	/*
+	 * Helper that moves row down from the row above sequenceA[aStart] to the row of sequenceA[aEnd-1]. 
+	 */
+	private void forwardRows(int aStart, int aEnd, int bStart, int bEnd, double[] row){
+		int width = bEnd - bStart; 
+		stats.cells += (long) (aEnd - aStart) * width; 
+
+		if(useVectorKernel(width)){ //Vectorized rows when the Vector API is available. 
+			new StripedScoreKernel(this, alphabetSize, sequenceB, bStart, bEnd, false).fillRows(sequenceA, aStart, aEnd-aStart, 1, row); 
+			return; 
+		}
+
+		for(int i = aStart; i < aEnd; i++){
+			double gapA = getGapPenaltyValue(sequenceA[i]); 
+			double diagonalValue = row[0]; //Value of the previous row one column back. 
+			row[0] += gapA; 
+			for(int j = 1; j <= width; j++){
+				double up = row[j] + gapA; 
+				double diagonal = diagonalValue + similarityScore(sequenceA[i], sequenceB[bStart+j-1]); 
+				double back = row[j-1] + getGapPenaltyValue(sequenceB[bStart+j-1]); 
+				diagonalValue = row[j]; 
+				row[j] = maxValue(up, diagonal, back); 
 			}
+		}
+	}
+
+	/*
+	 * Helper that fills row[0..bEnd-bStart] with the scores of aligning the reversed suffixes, where row[k] is the score of 
+	 * sequenceA[aStart,aEnd) against the last k residues of sequenceB[bStart,bEnd). 
+	 */
+	private void reverseFirstRow(int aStart, int aEnd, int bStart, int bEnd, double[] row){
+		int width = bEnd - bStart; 
+		stats.cells += (long) (aEnd - aStart) * width; 
+		
+		row[0] = 0; 
+		for(int j = 1; j <= width; j++) //Base case of the last row is the gaps of the end of B. 
+			row[j] = row[j-1] + getGapPenaltyValue(sequenceB[bEnd-j]); 
+
+		if(useVectorKernel(width)){ //Vectorized rows when the Vector API is available. 
+			new StripedScoreKernel(this, alphabetSize, sequenceB, bStart, bEnd, true).fillRows(sequenceA, aEnd-1, aEnd-aStart, -1, row); 
+			return; 
+		}
+
+		for(int i = aEnd-1; i >= aStart; i--){
+			double gapA = getGapPenaltyValue(sequenceA[i]); 
+			double diagonalValue = row[0]; 
+			row[0] += gapA; 
+			for(int j = 1; j <= width; j++){
+				double up = row[j] + gapA; 
+				double diagonal = diagonalValue + similarityScore(sequenceA[i], sequenceB[bEnd-j]); 
+				double back = row[j-1] + getGapPenaltyValue(sequenceB[bEnd-j]); 
+				diagonalValue = row[j]; 
+				row[j] = maxValue(up, diagonal, back); 
+			}
+		}
+	}
+
+	/*
+	 * Returns true if rows of the given width should be filled by the StripedScoreKernel, which needs the Vector API module and 
+	 * can be turned off with the vectorKernel setting. 
+	 */
+	private boolean useVectorKernel(int width){
+		return VECTOR_API_PRESENT && width >= MIN_VECTOR_WIDTH && config.useVectorKernel(); 
+	}
+
+	/*
+	 * Helper that aligns a block with a single row or empty column range using a small full matrix, then appends its traceback 
+	 * to the end of the alignment buffers. 
+	 */
+	private void alignBlock(int aStart, int aEnd, int bStart, int bEnd){
+		int rows = aEnd - aStart; 
+		int cols = bEnd - bStart; 
+		stats.cells += (long) rows * cols; 
+		double[][] scores = new double[rows+1][cols+1]; 
+		byte[][] directions = new byte[rows+1][cols+1]; 
+
+		for(int i = 1; i <= rows; i++){ //Base case down the first column. 
+			scores[i][0] = scores[i-1][0] + getGapPenaltyValue(sequenceA[aStart+i-1]); 
+			directions[i][0] = TracebackMatrix.UP; 
+		}
+		for(int j = 1; j <= cols; j++){ //Base case across the first row. 
+			scores[0][j] = scores[0][j-1] + getGapPenaltyValue(sequenceB[bStart+j-1]); 
+			directions[0][j] = TracebackMatrix.BACK; 
+		}
+		for(int i = 1; i <= rows; i++){
+			for(int j = 1; j <= cols; j++){
+				double up = scores[i-1][j] + getGapPenaltyValue(sequenceA[aStart+i-1]); 
+				double diagonal = scores[i-1][j-1] + similarityScore(sequenceA[aStart+i-1], sequenceB[bStart+j-1]); 
+				double back = scores[i][j-1] + getGapPenaltyValue(sequenceB[bStart+j-1]); 
+				directions[i][j] = getMax(up, diagonal, back); 
+				scores[i][j] = directions[i][j] == TracebackMatrix.UP ? up : directions[i][j] == TracebackMatrix.DIAGONAL ? diagonal : back; 
+			}
+		}
+
+		Alphabet alphabet = scoring.getAlphabet(); 
+		int i = rows; 
+		int j = cols; 
+		int length = 0; 
+		while(i+j != 0){ //Counts the columns of the block's traceback so it can be written backwards into place. 
+			byte direction = directions[i][j]; 
+			if(direction != TracebackMatrix.BACK)
+				i--; 
+			if(direction != TracebackMatrix.UP)
+				j--; 
+			length++; 
+		}
+
+		i = rows; 
+		j = cols; 
+		int k = alignmentEnd + length; 
+		while(i+j != 0){
+			k--; 
+			switch(directions[i][j]){
+				case TracebackMatrix.UP: optimalAlignmentA[k] = alphabet.symbol(sequenceA[aStart+i-1]); 
+					  optimalAlignmentB[k] = '-'; 
+					  i--; 
+					  break; 
+				case TracebackMatrix.DIAGONAL: optimalAlignmentA[k] = alphabet.symbol(sequenceA[aStart+i-1]); 
+					  optimalAlignmentB[k] = alphabet.symbol(sequenceB[bStart+j-1]); 
+					  i--; 
+					  j--; 
+					  break; 
+				default:  optimalAlignmentA[k] = '-'; 
+					  optimalAlignmentB[k] = alphabet.symbol(sequenceB[bStart+j-1]); 
+					  j--; 
+					  break; 
+			}
+		}
+		alignmentEnd += length; 
+	}
+
+	/*
+	 * Helper method that returns the value of the direction getMax would pick. 
+	 */
+	private double maxValue(double up, double diagonal, double back){
+		switch(getMax(up, diagonal, back)){
+			case TracebackMatrix.UP: return up; 
+			case TracebackMatrix.DIAGONAL: return diagonal; 
+			default:  return back; 
+		}
+	}
+
+	
+	/*
+	 * Returns the optimal similarity score. 
+	 */
+	public double getOptimalSimilarityScore(){
+		return optimalSimilarityScore; 
+	}
+
+	/*
+	 * Returns the optimal alignment of sequence A. 
+	 */
+	public String getOptimalAlignmentA(){
+		return new String(optimalAlignmentA, alignmentStart, alignmentEnd - alignmentStart); 
+	}
+
+	/*
+	 * Returns the optimal alignment of sequence B. 
+	 */
+	public String getOptimalAlignmentB(){
+		return new String(optimalAlignmentB, alignmentStart, alignmentEnd - alignmentStart); 
+	}
+
+	/*
+	 * Returns the measurements of the last alignment, which the next alignment of the workspace overwrites. 
+	 */
+	public AlignmentStats getStats(){
+		return stats; 
+	}
+
+	/*
+	 * Returns a copy of the score and alignment that stays the same when the workspace aligns the next pair. 
+	 */
+	public AlignmentResult getResult(){
+		return new AlignmentResult(optimalSimilarityScore, optimalAlignmentA, optimalAlignmentB, alignmentStart, alignmentEnd); 
+	}
+
+	/*
+	 * Method writes the score and alignment of the pair through the writer. 
+	 */
+	public void writeAlignment(AlignmentWriter writer, String idA, String idB)throws IOException{
+		writer.write(idA, idB, optimalSimilarityScore, optimalAlignmentA, optimalAlignmentB, alignmentStart, alignmentEnd); 
+	}
+
+	/*
+	 * Method prints only the optimal similarity score of the score only mode, either to standard output or to the given file. 
+	 */
+	public static void displayScore(double score)throws IOException{
+		AlignmentWriter writer = AlignmentWriter.fromProperties(false); 
+		writer.writeScore(System.getProperty("sequenceA"), System.getProperty("sequenceB"), score); 
+		writer.close(); 
+	}
+
+	/*
+	 * Method either prints to standard output or to a given file, in the format of the outputFormat property. 
+	 */
+	public void displayOutput()throws IOException{
+		AlignmentWriter writer = AlignmentWriter.fromProperties(false); //Writes to the file or standard output. 
+		writeAlignment(writer, System.getProperty("sequenceA"), System.getProperty("sequenceB")); 
+		writer.close(); 
+	}
+
+	/*
+	 * Helper method that reports the hits and misses of the cache on standard error for the debugMode, when there is a cache. 
+	 */
+	private static void writeCacheCounters(AlignmentCache cache){
+		if(cache == null)
+			return; 
+		System.err.println("Debug: cache: " + cache.getHits() + " hits, " + cache.getDiskHits() + " disk hits, " + cache.getMisses() + " misses"); 
 	}
 
 	public static void main(String[] args){
@@ -329,20 +937,113 @@ public class SequenceComparison{
 				System.exit(0); 
 			}
 		
+			PhaseTimes times = new PhaseTimes(); //Wall time of each phase for the debugMode report. 
+			
 			Parser.parseConfigFile(new File(args[0])); //Parses the config file. 
+			times.lap("config parse"); 
+			
+			boolean debug = System.getProperty("debugMode", "false").equals("true"); //Reports the phase times on standard error. 
+			
+			if(System.getProperty("serverMode", "false").equals("true")){ //Keeps running and aligns the pairs sent to it, parsing each scoring once. 
+				AlignmentServer server = new AlignmentServer(System.getProperties(), Integer.valueOf(System.getProperty("serverPort", "8410"))); 
+				server.start(); 
+				Runtime.getRuntime().addShutdownHook(new Thread(() -> server.stop(1))); 
+				System.out.println("Listening on 127.0.0.1:" + server.getPort()); 
+				return; //The server's dispatcher thread keeps the JVM running. 
+			}
 			
 			Matrix weightMatrix = Parser.parseWeightMatrixFile(System.getProperty("weightMatrixFile")); //parses the Weight Matrix file and obtains the actual weightMatrix. 
 			
 			double[] penalties = Parser.parseGapPenaltyFile(System.getProperty("gapPenaltyFile")); //parses the Gap Penalty file and creates a double array of the penalties from the file. 
+			times.lap("matrix and penalty parse"); 
+			
+			Alphabet alphabet = new Alphabet(System.getProperty("alphabet", "ACGT")); //The symbols in the order of the weight matrix rows and gap penalties. 
+			
+			ScoringScheme scoring = new ScoringScheme(alphabet, weightMatrix, penalties); //Flattens the weight matrix and gap penalties into lookup tables. 
+			
+			if(System.getProperty("searchMode", "false").equals("true")){ //Aligns each query only with the targets sharing the most k-mers. 
+				AlignmentConfig config = AlignmentConfig.fromProperties(); 
+				String inputFile = System.getProperty("sequenceInputFile"); 
+				String targetFile = System.getProperty("searchTargetFile", inputFile); 
+				List<String> queryIds = Arrays.asList(System.getProperty("queryIds", System.getProperty("sequenceA")).split(",")); 
+				Map<String,byte[]> parsed = Parser.parseSequences(inputFile, queryIds, alphabet); 
+				Map<String,byte[]> queries = new LinkedHashMap<String,byte[]>(); //Searched in the order they were given. 
+				for(String id : queryIds)
+					queries.put(id, parsed.get(id)); 
+				SequenceSearch.run(new AlignmentEngine(scoring, config, AlignmentCache.fromProperties(scoring, config)), queries, 
+					Parser.parseAllSequences(targetFile, alphabet), targetFile.equals(inputFile)); 
+				return; 
+			}
+
+			if(System.getProperty("shardMode", "false").equals("true")){ //Splits the batch mode over worker processes, or is one of them. 
+				AlignmentConfig config = AlignmentConfig.fromProperties(); 
+				AlignmentEngine engine = new AlignmentEngine(scoring, config, AlignmentCache.fromProperties(scoring, config)); 
+				Map<String,byte[]> all = Parser.parseAllSequences(System.getProperty("sequenceInputFile"), alphabet); 
+				if(args.length == 3 && args[1].equals("shard")) //Started by the coordinator as the worker of one shard. 
+					ShardedComparison.runShard(engine, all, Integer.valueOf(args[2])); 
+				else
+					ShardedComparison.run(engine, all, args[0]); 
+				return; 
+			}
+
+			if(System.getProperty("batchMode", "false").equals("true")){ //Compares every pair of sequences in the file instead of just A and B. 
+				AlignmentConfig config = AlignmentConfig.fromProperties(); 
+				BatchComparison.run(new AlignmentEngine(scoring, config, AlignmentCache.fromProperties(scoring, config)), 
+					Parser.parseAllSequences(System.getProperty("sequenceInputFile"), alphabet)); 
+				return; 
+			}
+
+			String idA = System.getProperty("sequenceA"); 
+			String idB = System.getProperty("sequenceB"); 
+			Map<String,byte[]> sequences = Parser.parseSequences(System.getProperty("sequenceInputFile"), Arrays.asList(idA, idB), alphabet); //parses the sequenceInput files to obtain the codes of each sequence A and B. 
+			byte[] sequenceA = sequences.get(idA); 
+			byte[] sequenceB = sequences.get(idB); 
+			times.lap("sequence parse"); 
 			
-			Parser.parseSequenceInputFile(System.getProperty("sequenceInputFile")); //parses the sequenceInput files to obtain each sequence A and B. 
-			SequenceComparison sc = new SequenceComparison(weightMatrix,penalties,Parser.getSequenceA(),Parser.getSequenceB()); //Creates the SequenceComparison object. 
-			sc.computeOptimalAlignments(); //Performs the Smith Watermon Global Alignment algorithm. 
+			AlignmentConfig config = AlignmentConfig.fromProperties(); 
+			AlignmentEngine engine = new AlignmentEngine(scoring, config, AlignmentCache.fromProperties(scoring, config)); //The aligner with the settings and cache of the config file. 
+			long cells = (long) sequenceA.length * sequenceB.length; 
 			
-			sc.displayOutput(); //Displays the output to either standard out or to specified output file.  
+			if(System.getProperty("scoreOnly", "false").equals("true")){ //Screening only needs the score, so no traceback or alignment output. 
+				long start = System.nanoTime(); 
+				double score = engine.score(sequenceA, sequenceB); 
+				long fillNanos = System.nanoTime() - start; 
+				times.lap("fill"); 
+				displayScore(score); 
+				times.lap("output"); 
+				if(debug){
+					times.write(System.err, cells, fillNanos, (long) (sequenceB.length + 1) * Double.BYTES); 
+					writeCacheCounters(engine.getCache()); 
+				}
+				return; 
+			}
+
+			long start = System.nanoTime(); 
+			AlignmentWriter writer = AlignmentWriter.fromProperties(false); //Writes to the file or standard output. 
+			String checkpointFile = System.getProperty("checkpointFile"); 
+			if(checkpointFile != null){ //Keeps the traceback in the file, which a run that died can resume from. 
+				AlignmentCheckpoint checkpoint = AlignmentCheckpoint.open(new File(checkpointFile), scoring, sequenceA, sequenceB, 
+					System.getProperty("resume", "false").equals("true"), Long.valueOf(System.getProperty("checkpointInterval", "60"))); 
+				engine.align(sequenceA, sequenceB, checkpoint).write(writer, idA, idB); 
+				checkpoint.delete(); //Only needed until the alignment is written. 
+			}
+			else
+				engine.align(sequenceA, sequenceB, writer, idA, idB); //Performs the Smith Watermon Global Alignment algorithm and displays the output. 
+			writer.close(); 
+			
+			if(debug){ //Splits the time of the alignment into its phases, the rest is the output. 
+				AlignmentStats stats = engine.getStats(); 
+				long alignNanos = stats.getInitNanos() + stats.getFillNanos() + stats.getTracebackNanos(); 
+				times.add("base cases", stats.getInitNanos()); 
+				times.add("fill (" + stats.getMode() + ")", stats.getFillNanos()); 
+				times.add("traceback", stats.getTracebackNanos()); 
+				times.add("output", System.nanoTime() - start - alignNanos); 
+				times.write(System.err, stats.getCells(), stats.getFillNanos(), stats.getPeakMatrixBytes()); 
+				writeCacheCounters(engine.getCache()); 
+			}
 
 		}
-		catch(IOException e){
+		catch(IOException | IllegalArgumentException e){
 			System.out.println(e.getMessage());
 			System.exit(0); 
 		}
@@ -0,0 +1,197 @@
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.util.*;
+//Author: Nicholas Taylor
+
+/*
+ * Class used for streaming the sequence:<id>:...X records of a Sequence Input file through memory mapped windows, so files of many
+ * GB are read with a constant amount of memory on top of the sequences that are kept. Ids are matched exactly, the residues of a
+ * wanted record are decoded straight into codes of the alphabet, the records that are not wanted are skipped without decoding, and
+ * reading stops as soon as every wanted record has been found.
+ */
+public class SequenceFileReader implements Closeable{
+	private static final long WINDOW_SIZE = 64L << 20; //Bytes of the file mapped at a time.
+	private static final String PREFIX = "sequence:"; //Start of every record, in any case.
+
+	private final FileChannel channel; //The open file.
+	private final long size; //Length of the file in bytes.
+	private MappedByteBuffer window; //The mapped part of the file being read.
+	private long windowStart; //File offset of the start of the window.
+	private long position; //File offset of the next byte to read.
+
+	/*
+	 * Constructor that opens the file for reading.
+	 */
+	public SequenceFileReader(String file)throws IOException{
+		this.channel = new RandomAccessFile(file, "r").getChannel();
+		this.size = channel.size();
+	}
+
+	/*
+	 * Helper method that returns the next byte of the file, or -1 at the end, mapping the next window when the current one runs out.
+	 */
+	private int next()throws IOException{
+		if(position >= size)
+			return -1;
+		if(window == null || position - windowStart >= window.limit()){
+			windowStart = position;
+			window = channel.map(FileChannel.MapMode.READ_ONLY, windowStart, Math.min(WINDOW_SIZE, size - windowStart));
+		}
+		return window.get((int) (position++ - windowStart)) & 0xFF;
+	}
+
+	/*
+	 * Method reads the records whose ids are in ids, or every record when ids is null, returning them in file order keyed by id.
+	 * Stops at the end of the last wanted record. Throws an IOException for a malformed record or a symbol not in the alphabet.
+	 */
+	public Map<String,byte[]> read(Set<String> ids, Alphabet alphabet)throws IOException{
+		Map<String,byte[]> sequences = new LinkedHashMap<String,byte[]>();
+		StringBuilder id = new StringBuilder();
+		CodeBuffer codes = new CodeBuffer();
+
+		while((ids == null || sequences.size() < ids.size()) && readHeader(id)){
+			String key = id.toString();
+
+			if(ids != null && !ids.contains(key)){ //Skips a record that is not wanted without decoding it.
+				skipResidues(key);
+				continue;
+			}
+
+			decodeResidues(key, alphabet, codes);
+			if(sequences.containsKey(key))
+				throw new IOException("Error repeated sequence id " + key);
+			sequences.put(key, codes.toArray());
+		}
+		return sequences;
+	}
+
+	/*
+	 * Method scans every record without decoding it, returning for each id the file offset of its first residue and the number
+	 * of bytes up to its X terminator, in file order. Used to build the SequenceIndex.
+	 */
+	public Map<String,long[]> scanOffsets()throws IOException{
+		Map<String,long[]> offsets = new LinkedHashMap<String,long[]>();
+		StringBuilder id = new StringBuilder();
+
+		while(readHeader(id)){
+			String key = id.toString();
+			long start = position;
+			skipResidues(key);
+			if(offsets.containsKey(key))
+				throw new IOException("Error repeated sequence id " + key);
+			offsets.put(key, new long[]{start, position - 1 - start});
+		}
+		return offsets;
+	}
+
+	/*
+	 * Method decodes the single record whose residues start at the file offset and run for length bytes, as found by scanOffsets.
+	 * Only that record is mapped.
+	 */
+	public byte[] readAt(long offset, long length, String id, Alphabet alphabet)throws IOException{
+		if(offset < 0 || length < 0 || offset + length >= size)
+			throw new IOException("Error invalid offset of sequence " + id);
+		position = offset;
+		windowStart = offset;
+		window = channel.map(FileChannel.MapMode.READ_ONLY, offset, Math.min(length + 1, WINDOW_SIZE)); //The residues and the terminator.
+		CodeBuffer codes = new CodeBuffer();
+		decodeResidues(id, alphabet, codes);
+		return codes.toArray();
+	}
+
+	/*
+	 * Helper method that reads up to and including the next sequence:<id>: header into id, skipping blank space, comments and any
+	 * other line that does not start with sequence:, as the original parser did. Returns false at the end of the file.
+	 */
+	private boolean readHeader(StringBuilder id)throws IOException{
+		int c;
+		while((c = next()) != -1){
+			if(Character.isWhitespace(c)) //Blank space between records.
+				continue;
+
+			int k = 0;
+			while(k < PREFIX.length() && Character.toLowerCase(c) == PREFIX.charAt(k)){ //Checks the line starts with sequence:
+				if(++k < PREFIX.length())
+					c = next();
+			}
+			if(k < PREFIX.length()){ //A comment or other text, skipped up to the next line.
+				while(c != -1 && c != '\n')
+					c = next();
+				continue;
+			}
+
+			id.setLength(0);
+			while((c = next()) != ':'){ //The id runs up to the next ':'.
+				if(c == -1 || c == '\n')
+					throw new IOException("Error invalid sequence record at byte " + (position - 1));
+				id.append((char) c);
+			}
+			return true;
+		}
+		return false;
+	}
+
+	/*
+	 * Helper method that moves past the residues and X terminator of the record without decoding them.
+	 */
+	private void skipResidues(String id)throws IOException{
+		int c;
+		while((c = next()) != 'X' && c != 'x'){
+			if(c == -1)
+				throw new IOException("Error sequence " + id + " has no X terminator");
+		}
+	}
+
+	/*
+	 * Helper method that decodes the residues up to the X terminator into codes, across as many lines as it takes.
+	 */
+	private void decodeResidues(String id, Alphabet alphabet, CodeBuffer codes)throws IOException{
+		codes.clear();
+		int c;
+		while((c = next()) != 'X' && c != 'x'){
+			if(c == -1)
+				throw new IOException("Error sequence " + id + " has no X terminator");
+			if(Character.isWhitespace(c))
+				continue;
+			int code = alphabet.code(Character.toUpperCase((char) c));
+			if(code == -1)
+				throw new IOException("Error invalid symbol " + (char) c + " at position " + (codes.length() + 1) + " of sequence " + id);
+			codes.add((byte) code);
+		}
+	}
+
+	/*
+	 * Closes the file.
+	 */
+	public void close()throws IOException{
+		window = null;
+		channel.close();
+	}
+
+	/*
+	 * Class used as a growable array of codes, so a sequence is decoded without building a String first.
+	 */
+	private static class CodeBuffer{
+		private byte[] codes = new byte[1024];
+		private int length;
+
+		void add(byte code){
+			if(length == codes.length)
+				codes = Arrays.copyOf(codes, codes.length * 2);
+			codes[length++] = code;
+		}
+
+		int length(){
+			return length;
+		}
+
+		void clear(){
+			length = 0;
+		}
+
+		byte[] toArray(){
+			return Arrays.copyOf(codes, length);
+		}
+	}
+}
@@ -0,0 +1,116 @@
+import java.io.*;
+import java.util.*;
+//Author: Nicholas Taylor
+
+/*
+ * Class used for making reproducible synthetic workloads for the benchmarks and load tests. A generator with the same seed always
+ * makes the same sequences. Similar pairs are made by mutating a random sequence, keeping each residue with the probability
+ * similarity and otherwise substituting it, inserting a random residue before it or deleting it, with chances of 2:1:1.
+ * Usage: java SequenceGenerator <outputFile> <count> <length> <similarity> [seed] [alphabet]
+ * writes count sequences, each a mutation of the same random ancestor, as a Sequence Input file with ids 1 to count.
+ */
+public class SequenceGenerator{
+	private static final int LINE_LENGTH = 60; //Residues on each line of a written record.
+
+	private final Random random; //Source of every choice, seeded.
+	private final int alphabetSize; //Number of codes to choose from.
+
+	/*
+	 * Constructor for a generator of codes 0 to alphabetSize-1 with the given seed.
+	 */
+	public SequenceGenerator(long seed, int alphabetSize){
+		if(alphabetSize < 1)
+			throw new IllegalArgumentException("Error alphabet must have at least 1 symbol");
+		this.random = new Random(seed);
+		this.alphabetSize = alphabetSize;
+	}
+
+	/*
+	 * Method returns a sequence of uniformly random codes.
+	 */
+	public byte[] random(int length){
+		byte[] sequence = new byte[length];
+		for(int i = 0; i < length; i++)
+			sequence[i] = (byte) random.nextInt(alphabetSize);
+		return sequence;
+	}
+
+	/*
+	 * Method returns a mutated copy of the sequence, where each residue is kept with the probability similarity.
+	 */
+	public byte[] mutate(byte[] sequence, double similarity){
+		if(similarity < 0 || similarity > 1)
+			throw new IllegalArgumentException("Error similarity must be between 0 and 1");
+
+		ByteArrayOutputStream mutated = new ByteArrayOutputStream(sequence.length + sequence.length / 8);
+		for(byte code : sequence){
+			if(random.nextDouble() < similarity){ //Kept as it is.
+				mutated.write(code);
+				continue;
+			}
+			switch(random.nextInt(4)){
+				case 0: //Deleted.
+					break;
+				case 1: //A random residue inserted before it.
+					mutated.write(random.nextInt(alphabetSize));
+					mutated.write(code);
+					break;
+				default: //Substituted by a different residue when there is one.
+					mutated.write(alphabetSize == 1 ? code : (code + 1 + random.nextInt(alphabetSize - 1)) % alphabetSize);
+					break;
+			}
+		}
+		return mutated.toByteArray();
+	}
+
+	/*
+	 * Method writes the sequences as sequence:<id>: records of the alphabet's symbols, with ids 1 to sequences.size().
+	 */
+	public static void write(Writer out, List<byte[]> sequences, Alphabet alphabet)throws IOException{
+		BufferedWriter writer = new BufferedWriter(out);
+		for(int k = 0; k < sequences.size(); k++){
+			byte[] sequence = sequences.get(k);
+			writer.write("sequence:" + (k + 1) + ":");
+			for(int i = 0; i < sequence.length; i++){
+				if(i > 0 && i % LINE_LENGTH == 0) //Records can run over many lines.
+					writer.write('\n');
+				writer.write(alphabet.symbol(sequence[i]));
+			}
+			writer.write("X\n\n");
+		}
+		writer.flush();
+	}
+
+	public static void main(String[] args){
+		if(args.length < 4){
+			System.out.println("Usage: java SequenceGenerator <outputFile> <count> <length> <similarity> [seed] [alphabet]");
+			System.exit(0);
+		}
+
+		try{
+			int count = Integer.valueOf(args[1]);
+			int length = Integer.valueOf(args[2]);
+			double similarity = Double.valueOf(args[3]);
+			long seed = args.length > 4 ? Long.valueOf(args[4]) : 42;
+			Alphabet alphabet = new Alphabet(args.length > 5 ? args[5] : "ACGT");
+
+			SequenceGenerator generator = new SequenceGenerator(seed, alphabet.size());
+			byte[] ancestor = generator.random(length);
+			List<byte[]> sequences = new ArrayList<byte[]>();
+			for(int k = 0; k < count; k++)
+				sequences.add(generator.mutate(ancestor, similarity));
+
+			Writer out = new FileWriter(args[0]);
+			try{
+				write(out, sequences, alphabet);
+			}
+			finally{
+				out.close();
+			}
+		}
+		catch(IOException | IllegalArgumentException e){
+			System.out.println(e.getMessage());
+			System.exit(0);
+		}
+	}
+}
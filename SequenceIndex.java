@@ -0,0 +1,122 @@
+import java.io.*;
+import java.util.*;
+//Author: Nicholas Taylor
+
+/*
+ * Class used for the sidecar index of a Sequence Input file, written next to it as <file>.idx. The index maps every id to the
+ * byte offset and length of its residues so a sequence is fetched with one seek instead of a scan of the file. The size and last
+ * modified time of the sequence file are stored in the index and it is ignored when they no longer match.
+ * Usage: java SequenceIndex <sequenceInputFile>
+ */
+public class SequenceIndex{
+	private static final String SUFFIX = ".idx"; //Added to the sequence file name.
+	private static final int MAGIC = 0x53514958; //SQIX, marks the file as an index.
+	private static final int VERSION = 1;
+
+	private final Map<String,long[]> offsets; //Offset and length of the residues of each id.
+
+	/*
+	 * Constructor for an index of the given offsets.
+	 */
+	private SequenceIndex(Map<String,long[]> offsets){
+		this.offsets = offsets;
+	}
+
+	/*
+	 * Method scans the sequence file and writes its index next to it, returning the index.
+	 */
+	public static SequenceIndex build(String sequenceFile)throws IOException{
+		File file = new File(sequenceFile);
+		long size = file.length();
+		long modified = file.lastModified();
+
+		Map<String,long[]> offsets;
+		SequenceFileReader reader = new SequenceFileReader(sequenceFile);
+		try{
+			offsets = reader.scanOffsets();
+		}
+		finally{
+			reader.close();
+		}
+
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(sequenceFile + SUFFIX)));
+		try{
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeLong(size);
+			out.writeLong(modified);
+			out.writeInt(offsets.size());
+			for(Map.Entry<String,long[]> entry : offsets.entrySet()){
+				out.writeUTF(entry.getKey());
+				out.writeLong(entry.getValue()[0]);
+				out.writeLong(entry.getValue()[1]);
+			}
+		}
+		finally{
+			out.close();
+		}
+		return new SequenceIndex(offsets);
+	}
+
+	/*
+	 * Method returns the index of the sequence file, or null when there is no index or it is out of date with the file.
+	 */
+	public static SequenceIndex load(String sequenceFile)throws IOException{
+		File file = new File(sequenceFile);
+		File indexFile = new File(sequenceFile + SUFFIX);
+		if(!indexFile.isFile())
+			return null;
+
+		DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(indexFile)));
+		try{
+			if(in.readInt() != MAGIC || in.readInt() != VERSION)
+				return null;
+			if(in.readLong() != file.length() || in.readLong() != file.lastModified()) //The sequence file changed since the index was built.
+				return null;
+
+			int count = in.readInt();
+			Map<String,long[]> offsets = new HashMap<String,long[]>(count * 2);
+			for(int i = 0; i < count; i++){
+				String id = in.readUTF();
+				offsets.put(id, new long[]{in.readLong(), in.readLong()});
+			}
+			return new SequenceIndex(offsets);
+		}
+		catch(EOFException e){ //A truncated index is treated as missing.
+			return null;
+		}
+		finally{
+			in.close();
+		}
+	}
+
+	/*
+	 * Method reads the sequence of the id through the reader, or returns null when the id is not in the index.
+	 */
+	public byte[] read(SequenceFileReader reader, String id, Alphabet alphabet)throws IOException{
+		long[] entry = offsets.get(id);
+		return entry == null ? null : reader.readAt(entry[0], entry[1], id, alphabet);
+	}
+
+	/*
+	 * Returns the number of sequences in the index.
+	 */
+	public int size(){
+		return offsets.size();
+	}
+
+	public static void main(String[] args){
+		if(args.length < 1){
+			System.out.println("Usage: java SequenceIndex <sequenceInputFile>");
+			System.exit(0);
+		}
+		try{
+			SequenceIndex index = build(args[0]);
+			System.out.println("Indexed " + index.size() + " sequences into " + args[0] + SUFFIX);
+		}
+		catch(IOException e){
+			System.out.println(e.getMessage());
+			System.exit(0);
+		}
+	}
+}
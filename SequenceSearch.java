@@ -0,0 +1,67 @@
+import java.io.*;
+import java.util.*;
+//Author: Nicholas Taylor
+
+/*
+ * Class used for the search mode, which finds the best matching targets of each query without aligning it against all of them. The
+ * targets of searchTargetFile, or of the sequence input file when it is not set, are put into a KmerIndex once. For each query only the
+ * searchCandidates targets sharing the most k-mers with it are aligned, and their alignments are written best score first in the format
+ * of outputFormat. The queries are the queryIds, or sequenceA when they are not set, and a query is never matched against the target
+ * with its own id from the same file. The cells of the targets that were never aligned are reported as avoided.
+ */
+public class SequenceSearch{
+
+	/*
+	 * Method searches the targets for each query and writes the alignments of the candidates to the outputFile or standard output.
+	 */
+	public static void run(AlignmentEngine engine, Map<String,byte[]> queries, Map<String,byte[]> targets, boolean sameFile)throws IOException{
+		int alphabetSize = engine.getScoring().size();
+		int candidates = Integer.valueOf(System.getProperty("searchCandidates", "10"));
+		int k = Integer.valueOf(System.getProperty("kmerLength", String.valueOf(KmerIndex.defaultLength(alphabetSize))));
+
+		long start = System.nanoTime();
+		KmerIndex index = new KmerIndex(targets, alphabetSize, k);
+		double indexSeconds = (System.nanoTime() - start) / 1e9;
+
+		long allCells = 0; //Cells of aligning every query with every target.
+		long alignedCells = 0; //Cells of the candidates that were aligned.
+		int aligned = 0;
+		AlignmentWriter writer = AlignmentWriter.fromProperties(true);
+		try{
+			for(Map.Entry<String,byte[]> query : queries.entrySet()){
+				byte[] sequence = query.getValue();
+				int self = sameFile ? index.indexOf(query.getKey()) : -1;
+				for(byte[] target : targets.values())
+					allCells += (long) sequence.length * target.length;
+				if(self >= 0)
+					allCells -= (long) sequence.length * sequence.length;
+
+				List<AlignmentResult> results = new ArrayList<AlignmentResult>();
+				List<String> ids = new ArrayList<String>();
+				for(int t : index.topCandidates(sequence, candidates, self)){
+					byte[] target = targets.get(index.getId(t));
+					results.add(engine.align(sequence, target));
+					ids.add(index.getId(t));
+					alignedCells += (long) sequence.length * target.length;
+					aligned++;
+				}
+
+				Integer[] order = new Integer[results.size()]; //Best score first, ties in k-mer order.
+				for(int r = 0; r < order.length; r++)
+					order[r] = r;
+				Arrays.sort(order, (x, y) -> Double.compare(results.get(y).getScore(), results.get(x).getScore()));
+				for(int r : order)
+					results.get(r).write(writer, query.getKey(), ids.get(r));
+			}
+		}
+		finally{
+			writer.close();
+		}
+
+		double seconds = (System.nanoTime() - start) / 1e9; //The summary goes to standard error, apart from the alignments.
+		System.err.println("Indexed " + index.size() + " targets with k = " + k + " in " + indexSeconds + " s, searched " + queries.size()
+			+ " queries in " + seconds + " s");
+		System.err.println("Aligned " + aligned + " candidates, avoided " + (allCells - alignedCells) + " of " + allCells + " cells ("
+			+ (allCells > 0 ? 100.0 * (allCells - alignedCells) / allCells : 0) + "%)");
+	}
+}
@@ -0,0 +1,164 @@
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+//Author: Nicholas Taylor
+
+/*
+ * Class used for tracking the shards of a sharded comparison in manifest.tsv of its directory, so a run that died or had shards fail
+ * can be started again and only redo the shards that are not done. The manifest holds a digest of the job, the pair range of every
+ * shard and its state (pending, running, done or failed) and attempts. It is rewritten to a temporary file and moved over the old one
+ * on every change, so it is always whole. A manifest of a different job is replaced, and the shard-<n>.bin, .bin.tmp and .log files
+ * of that job's shards are deleted, leaving any other file of the directory alone.
+ * The coordinator's threads update it, so the updates are synchronized.
+ */
+public class ShardManifest{
+	private static final String FILE = "manifest.tsv"; //Name of the manifest in the directory.
+
+	private final File directory; //Directory of the manifest and shard files.
+	private final String digest; //Digest of the job the shards belong to.
+	private final long[] bounds; //First pair of each shard, with one more for the end.
+	private final String[] states; //State of each shard.
+	private final int[] attempts; //Times each shard was started.
+
+	/*
+	 * Constructor for the manifest of the shards in the directory.
+	 */
+	private ShardManifest(File directory, String digest, long[] bounds, String[] states, int[] attempts){
+		this.directory = directory;
+		this.digest = digest;
+		this.bounds = bounds;
+		this.states = states;
+		this.attempts = attempts;
+	}
+
+	/*
+	 * Returns the manifest of the job in the directory, keeping the states of an earlier run of the same job with the shards it left
+	 * running set back to pending, or a new one with every shard pending.
+	 */
+	public static ShardManifest open(File directory, String digest, long[] bounds)throws IOException{
+		ShardManifest manifest = new File(directory, FILE).isFile() ? read(directory) : null;
+		if(manifest != null && manifest.digest.equals(digest) && Arrays.equals(manifest.bounds, bounds)){
+			for(int s = 0; s < manifest.states.length; s++){
+				if(!manifest.states[s].equals("done"))
+					manifest.states[s] = "pending";
+			}
+		}
+		else{
+			for(int s = 0; manifest != null && s < manifest.states.length; s++){ //Results of another job.
+				for(String suffix : new String[]{".bin", ".bin.tmp", ".log"})
+					Files.deleteIfExists(new File(directory, "shard-" + s + suffix).toPath());
+			}
+			String[] states = new String[bounds.length - 1];
+			Arrays.fill(states, "pending");
+			manifest = new ShardManifest(directory, digest, bounds, states, new int[states.length]);
+		}
+		manifest.write();
+		return manifest;
+	}
+
+	/*
+	 * Returns the manifest in the directory as it was last written, throws an IOException when it is missing or invalid.
+	 */
+	public static ShardManifest read(File directory)throws IOException{
+		File file = new File(directory, FILE);
+		List<String> lines = Files.readAllLines(file.toPath());
+		try{
+			if(lines.size() < 2 || !lines.get(0).startsWith("#digest\t") || !lines.get(1).startsWith("shard\t"))
+				throw new IOException("Error invalid manifest " + file);
+			int count = lines.size() - 2;
+			long[] bounds = new long[count + 1];
+			String[] states = new String[count];
+			int[] attempts = new int[count];
+			for(int s = 0; s < count; s++){
+				String[] fields = lines.get(s + 2).split("\t");
+				if(fields.length != 5 || Integer.parseInt(fields[0]) != s || (s > 0 && Long.parseLong(fields[1]) != bounds[s]))
+					throw new IOException("Error invalid manifest " + file + " at shard " + s);
+				bounds[s] = Long.parseLong(fields[1]);
+				bounds[s + 1] = Long.parseLong(fields[2]);
+				states[s] = fields[3];
+				attempts[s] = Integer.parseInt(fields[4]);
+			}
+			return new ShardManifest(directory, lines.get(0).substring(8), bounds, states, attempts);
+		}
+		catch(NumberFormatException e){
+			throw new IOException("Error invalid manifest " + file);
+		}
+	}
+
+	/*
+	 * Helper method that writes the manifest to a temporary file and moves it over the old one.
+	 */
+	private void write()throws IOException{
+		File temp = new File(directory, FILE + ".tmp");
+		PrintWriter pw = new PrintWriter(new BufferedWriter(new FileWriter(temp)));
+		try{
+			pw.println("#digest\t" + digest);
+			pw.println("shard\tfirst_pair\tend_pair\tstate\tattempts");
+			for(int s = 0; s < states.length; s++)
+				pw.println(s + "\t" + bounds[s] + "\t" + bounds[s + 1] + "\t" + states[s] + "\t" + attempts[s]);
+		}
+		finally{
+			pw.close();
+		}
+		Files.move(temp.toPath(), new File(directory, FILE).toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	/*
+	 * Method marks the shard as running and counts the attempt.
+	 */
+	public synchronized void start(int shard)throws IOException{
+		states[shard] = "running";
+		attempts[shard]++;
+		write();
+	}
+
+	/*
+	 * Method marks the shard as done, or as failed when done is false.
+	 */
+	public synchronized void finish(int shard, boolean done)throws IOException{
+		states[shard] = done ? "done" : "failed";
+		write();
+	}
+
+	/*
+	 * Returns the digest of the job.
+	 */
+	public String getDigest(){
+		return digest;
+	}
+
+	/*
+	 * Returns the number of shards.
+	 */
+	public int getShardCount(){
+		return states.length;
+	}
+
+	/*
+	 * Returns the first pair of the shard.
+	 */
+	public long getFirst(int shard){
+		return bounds[shard];
+	}
+
+	/*
+	 * Returns the pair after the last pair of the shard.
+	 */
+	public long getEnd(int shard){
+		return bounds[shard + 1];
+	}
+
+	/*
+	 * Returns true if the shard is done.
+	 */
+	public synchronized boolean isDone(int shard){
+		return states[shard].equals("done");
+	}
+
+	/*
+	 * Returns the number of times the shard was started.
+	 */
+	public synchronized int getAttempts(int shard){
+		return attempts[shard];
+	}
+}
@@ -0,0 +1,415 @@
+import java.io.*;
+import java.lang.management.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.security.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+//Author: Nicholas Taylor
+
+/*
+ * Class used for the shard mode, which runs a batch comparison too large for one JVM as local worker processes. The pairs of the batch
+ * mode, row by row and only the upper triangle when it is mirrored, are numbered and cut into shardCount contiguous ranges of about the
+ * same number of cells, so the shards are the same on every run of the same job. The coordinator keeps up to shardWorkers processes
+ * running, each running this program with the same configuration file on one shard, which scores its pairs on its threads and writes
+ * them as doubles in pair order to shard-<n>.bin in shardDirectory, moved into place only once it is whole. A shard whose process fails
+ * or leaves no whole file is started again up to shardRetries more times, and ShardManifest keeps track of every shard so a run that
+ * still has failed shards can be repeated and only redoes those. Once every shard is done their files are mapped and merged into the
+ * matrix of the batch mode, with the same layout, mirroring and distances.
+ */
+public class ShardedComparison{
+	private static final long MAX_SHARD_PAIRS = 1L << 24; //Most pairs of a shard, 128 MB of scores.
+	private static final int CHUNK_PAIRS = 256; //Pairs a worker thread takes at a time.
+
+	private final AlignmentEngine engine; //The aligner of every pair.
+	private final Map<String,byte[]> sequences; //Every sequence of the input file.
+	private final List<String> queries; //Ids down the side of the matrix.
+	private final List<String> targets; //Ids across the top of the matrix.
+	private final boolean triangle; //Only the upper triangle is computed.
+	private final long[] rowStarts; //Number of the first pair of each row, with one more for the total.
+	private final File directory; //Directory of the manifest and shard files.
+
+	/*
+	 * Constructor for the job of comparing the queryIds with the targetIds of the sequences, numbering its pairs.
+	 */
+	public ShardedComparison(AlignmentEngine engine, Map<String,byte[]> sequences)throws IOException{
+		this.engine = engine;
+		this.sequences = sequences;
+		this.queries = BatchComparison.selectIds(sequences, System.getProperty("queryIds"));
+		this.targets = BatchComparison.selectIds(sequences, System.getProperty("targetIds"));
+		this.triangle = queries.equals(targets) && engine.getScoring().isSymmetric(); //Same as the batch mode.
+		this.directory = new File(System.getProperty("shardDirectory", "shards"));
+
+		this.rowStarts = new long[queries.size() + 1];
+		for(int i = 0; i < queries.size(); i++)
+			rowStarts[i + 1] = rowStarts[i] + targets.size() - first(i);
+	}
+
+	/*
+	 * Method runs the job on worker processes started with the configuration file and writes the merged matrix to matrixOutputFile, or
+	 * standard output when it is not set. Throws an IOException when shards are still failed after their retries.
+	 */
+	public static void run(AlignmentEngine engine, Map<String,byte[]> sequences, String configFile)throws IOException{
+		ShardedComparison job = new ShardedComparison(engine, sequences);
+		int workers = Integer.valueOf(System.getProperty("shardWorkers", "2"));
+		int retries = Integer.valueOf(System.getProperty("shardRetries", "2"));
+		long start = System.nanoTime();
+
+		if(!job.directory.isDirectory() && !job.directory.mkdirs())
+			throw new IOException("Error could not create shardDirectory " + job.directory);
+		long[] bounds = job.bounds(Integer.valueOf(System.getProperty("shardCount", String.valueOf(4 * workers))));
+		ShardManifest manifest = ShardManifest.open(job.directory, job.digest(bounds), bounds);
+
+		ExecutorService pool = Executors.newFixedThreadPool(workers); //Each thread waits on one worker process at a time.
+		List<Future<Boolean>> results = new ArrayList<Future<Boolean>>();
+		int reused = 0;
+		for(int s = 0; s < manifest.getShardCount(); s++){
+			if(manifest.isDone(s) && job.isWhole(manifest, s)){ //Done by an earlier run.
+				reused++;
+				continue;
+			}
+			int shard = s;
+			results.add(pool.submit(() -> job.runWorker(manifest, shard, configFile, retries)));
+		}
+		int failed = 0;
+		try{
+			for(Future<Boolean> result : results){
+				if(!result.get())
+					failed++;
+			}
+		}
+		catch(InterruptedException e){
+			Thread.currentThread().interrupt();
+			throw new IOException("Error sharded comparison was interrupted");
+		}
+		catch(ExecutionException e){
+			throw new IOException("Error in sharded comparison: " + e.getCause().getMessage());
+		}
+		finally{
+			pool.shutdown();
+		}
+		if(failed > 0)
+			throw new IOException("Error " + failed + " of " + manifest.getShardCount() + " shards failed, see their logs in " + job.directory
+				+ " and run again to retry them");
+
+		job.merge(manifest);
+		double seconds = (System.nanoTime() - start) / 1e9;
+		long pairs = job.rowStarts[job.queries.size()];
+		System.err.println("Compared " + pairs + " pairs in " + seconds + " s (" + (pairs / seconds) + " pairs/s) in " + manifest.getShardCount()
+			+ " shards on " + workers + " workers, " + reused + " shards done by an earlier run");
+	}
+
+	/*
+	 * Method scores the pairs of the shard of the job in the manifest of shardDirectory and writes them to its shard file. Runs in the
+	 * worker processes.
+	 */
+	public static void runShard(AlignmentEngine engine, Map<String,byte[]> sequences, int shard)throws IOException{
+		ShardedComparison job = new ShardedComparison(engine, sequences);
+		ShardManifest manifest = ShardManifest.read(job.directory);
+		long[] bounds = new long[manifest.getShardCount() + 1];
+		for(int s = 0; s < manifest.getShardCount(); s++){
+			bounds[s] = manifest.getFirst(s);
+			bounds[s + 1] = manifest.getEnd(s);
+		}
+		if(shard < 0 || shard >= manifest.getShardCount() || !manifest.getDigest().equals(job.digest(bounds)))
+			throw new IOException("Error shard " + shard + " is not of the job in " + job.directory);
+
+		int workers = Integer.valueOf(System.getProperty("shardWorkers", "2"));
+		int threads = Integer.valueOf(System.getProperty("batchThreads",
+			String.valueOf(Math.max(1, Runtime.getRuntime().availableProcessors() / workers)))); //The workers share the machine.
+		long start = System.nanoTime();
+		double[] scores = job.score(bounds[shard], bounds[shard + 1], threads);
+
+		File temp = new File(job.directory, "shard-" + shard + ".bin.tmp");
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp), 1 << 16));
+		try{
+			for(double score : scores)
+				out.writeDouble(score);
+		}
+		finally{
+			out.close();
+		}
+		Files.move(temp.toPath(), job.shardFile(shard).toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		System.out.println("Shard " + shard + ": " + scores.length + " pairs in " + (System.nanoTime() - start) / 1e9 + " s on " + threads
+			+ " threads");
+	}
+
+	/*
+	 * Helper method that returns the first target of the row, past the mirrored lower triangle.
+	 */
+	private int first(int row){
+		return triangle ? row : 0;
+	}
+
+	/*
+	 * Helper method that returns the first pair of each of about shardCount shards, with one more for the end. The cuts fall where the
+	 * running total of cells reaches each shardCount-th of all of them, shards that would be empty are dropped and shards of more than
+	 * MAX_SHARD_PAIRS pairs are cut again.
+	 */
+	private long[] bounds(int shardCount){
+		long[] lengths = new long[targets.size() + 1]; //Running total of the target lengths.
+		for(int j = 0; j < targets.size(); j++)
+			lengths[j + 1] = lengths[j] + sequences.get(targets.get(j)).length;
+		double total = 0;
+		for(int i = 0; i < queries.size(); i++)
+			total += (double) sequences.get(queries.get(i)).length * (lengths[targets.size()] - lengths[first(i)]);
+
+		List<Long> cuts = new ArrayList<Long>();
+		cuts.add(0L);
+		double done = 0; //Cells of the rows before this one.
+		int next = 1; //Next cut to place.
+		for(int i = 0; i < queries.size() && next < shardCount; i++){
+			long length = sequences.get(queries.get(i)).length;
+			double rowCells = (double) length * (lengths[targets.size()] - lengths[first(i)]);
+			while(next < shardCount && done + rowCells >= total * next / shardCount){
+				double wanted = total * next / shardCount - done;
+				int low = first(i);
+				int high = targets.size();
+				while(low < high){ //First target whose running total of cells in the row reaches wanted.
+					int mid = (low + high) >>> 1;
+					if((double) length * (lengths[mid] - lengths[first(i)]) >= wanted)
+						high = mid;
+					else
+						low = mid + 1;
+				}
+				long pair = rowStarts[i] + low - first(i);
+				if(pair > cuts.get(cuts.size() - 1) && pair < rowStarts[queries.size()])
+					cuts.add(pair);
+				next++;
+			}
+			done += rowCells;
+		}
+		cuts.add(rowStarts[queries.size()]);
+
+		List<Long> bounds = new ArrayList<Long>();
+		for(int c = 0; c + 1 < cuts.size(); c++){
+			for(long pair = cuts.get(c); pair < cuts.get(c + 1); pair += MAX_SHARD_PAIRS)
+				bounds.add(pair);
+		}
+		bounds.add(rowStarts[queries.size()]);
+		long[] array = new long[bounds.size()];
+		for(int b = 0; b < array.length; b++)
+			array[b] = bounds.get(b);
+		return array;
+	}
+
+	/*
+	 * Helper method that returns the SHA-256, in hex, of everything the scores of the shards depend on: the scoring tables and score
+	 * type, the ids and sequences of the queries and targets, and the shard bounds.
+	 */
+	private String digest(long[] bounds){
+		try{
+			MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			ScoringScheme scoring = engine.getScoring();
+			ByteBuffer values = ByteBuffer.allocate(Double.BYTES * (scoring.substitutionTable().length + scoring.gapTable().length)
+				+ Long.BYTES * bounds.length);
+			for(double weight : scoring.substitutionTable())
+				values.putDouble(weight);
+			for(double gap : scoring.gapTable())
+				values.putDouble(gap);
+			for(long bound : bounds)
+				values.putLong(bound);
+			digest.update(values.array());
+			digest.update((System.getProperty("scoreType", "double") + "\n" + System.getProperty("scoreDecimals", "3") + "\n" + triangle)
+				.getBytes(StandardCharsets.UTF_8));
+			for(List<String> ids : Arrays.asList(queries, targets)){
+				for(String id : ids){
+					digest.update(("\n" + id + "\n").getBytes(StandardCharsets.UTF_8));
+					digest.update(sequences.get(id));
+				}
+				digest.update((byte) 0); //Keeps the queries apart from the targets.
+			}
+
+			StringBuilder hex = new StringBuilder();
+			for(byte b : digest.digest())
+				hex.append(String.format("%02x", b));
+			return hex.toString();
+		}
+		catch(NoSuchAlgorithmException e){
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/*
+	 * Helper method that returns the shard file of the shard.
+	 */
+	private File shardFile(int shard){
+		return new File(directory, "shard-" + shard + ".bin");
+	}
+
+	/*
+	 * Helper method that returns true if the shard file holds a score for every pair of the shard.
+	 */
+	private boolean isWhole(ShardManifest manifest, int shard){
+		return shardFile(shard).length() == Double.BYTES * (manifest.getEnd(shard) - manifest.getFirst(shard));
+	}
+
+	/*
+	 * Helper method that runs the shard on a worker process, starting it again up to retries times while it fails, and returns true
+	 * once it is done. The process gets the JVM options of this one and writes its output to shard-<n>.log.
+	 */
+	private boolean runWorker(ShardManifest manifest, int shard, String configFile, int retries)throws IOException, InterruptedException{
+		List<String> command = new ArrayList<String>();
+		command.add(new File(new File(System.getProperty("java.home"), "bin"), "java").getPath());
+		for(String option : ManagementFactory.getRuntimeMXBean().getInputArguments()){
+			if(!(option.startsWith("-agentlib") || option.startsWith("-agentpath") || option.startsWith("-javaagent")
+				|| option.startsWith("-Xrunjdwp"))) //A debugger or agent can not be attached twice.
+				command.add(option);
+		}
+		command.addAll(Arrays.asList("-cp", System.getProperty("java.class.path"), "SequenceComparison", configFile, "shard",
+			String.valueOf(shard)));
+
+		for(int attempt = 0; attempt <= retries; attempt++){
+			manifest.start(shard);
+			Process process = new ProcessBuilder(command).redirectErrorStream(true)
+				.redirectOutput(new File(directory, "shard-" + shard + ".log")).start();
+			int exit = process.waitFor();
+			if(exit == 0 && isWhole(manifest, shard)){ //Errors are printed with exit code 0, so the file is what counts.
+				manifest.finish(shard, true);
+				return true;
+			}
+		}
+		manifest.finish(shard, false);
+		return false;
+	}
+
+	/*
+	 * Helper method that scores the pairs from first to end on the threads, which take CHUNK_PAIRS pairs at a time so long and short
+	 * rows even out, and returns the scores in pair order.
+	 */
+	private double[] score(long first, long end, int threads)throws IOException{
+		double[] scores = new double[(int) (end - first)];
+		AtomicLong next = new AtomicLong(first);
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		try{
+			List<Future<?>> tasks = new ArrayList<Future<?>>();
+			for(int t = 0; t < threads; t++){
+				tasks.add(pool.submit(() -> {
+					long chunk;
+					while((chunk = next.getAndAdd(CHUNK_PAIRS)) < end){
+						int row = row(chunk);
+						int column = (int) (chunk - rowStarts[row]) + first(row);
+						for(long pair = chunk; pair < Math.min(chunk + CHUNK_PAIRS, end); pair++){
+							if(column == targets.size()){ //On to the next non empty row.
+								do{
+									row++;
+								}while(rowStarts[row + 1] == rowStarts[row]);
+								column = first(row);
+							}
+							scores[(int) (pair - first)] = engine.score(sequences.get(queries.get(row)), sequences.get(targets.get(column)));
+							column++;
+						}
+					}
+				}));
+			}
+			for(Future<?> task : tasks)
+				task.get();
+		}
+		catch(InterruptedException e){
+			Thread.currentThread().interrupt();
+			throw new IOException("Error shard was interrupted");
+		}
+		catch(ExecutionException e){
+			throw new IOException("Error in shard: " + e.getCause().getMessage());
+		}
+		finally{
+			pool.shutdown();
+		}
+		return scores;
+	}
+
+	/*
+	 * Helper method that returns the row of the pair, the last row starting at or before it.
+	 */
+	private int row(long pair){
+		int low = 0;
+		int high = queries.size() - 1;
+		while(low < high){
+			int mid = (low + high + 1) >>> 1;
+			if(rowStarts[mid] <= pair)
+				low = mid;
+			else
+				high = mid - 1;
+		}
+		return low; //Never an empty row, which starts at the same pair as the next one.
+	}
+
+	/*
+	 * Helper method that maps the shard files and writes the matrix in the layout of the batch mode, mirrored and turned into distances
+	 * the same way.
+	 */
+	private void merge(ShardManifest manifest)throws IOException{
+		int count = manifest.getShardCount();
+		long[] bounds = new long[count + 1];
+		DoubleBuffer[] shards = new DoubleBuffer[count];
+		for(int s = 0; s < count; s++){
+			bounds[s] = manifest.getFirst(s);
+			bounds[s + 1] = manifest.getEnd(s);
+			try(FileChannel channel = FileChannel.open(shardFile(s).toPath(), StandardOpenOption.READ)){
+				shards[s] = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()).asDoubleBuffer(); //Stays valid after the close.
+			}
+		}
+
+		boolean distance = System.getProperty("matrixType", "score").equals("distance");
+		double[] selfQueries = new double[queries.size()];
+		double[] selfTargets = new double[targets.size()];
+		if(distance){ //The mirrored matrix already holds each sequence against itself on its diagonal.
+			for(int i = 0; i < queries.size(); i++)
+				selfQueries[i] = triangle ? lookup(shards, bounds, i, i) : selfScore(queries.get(i));
+			for(int j = 0; j < targets.size(); j++)
+				selfTargets[j] = triangle ? selfQueries[j] : selfScore(targets.get(j));
+		}
+
+		String file = System.getProperty("matrixOutputFile");
+		PrintWriter pw = file == null ? new PrintWriter(new BufferedWriter(new OutputStreamWriter(System.out)))
+			: new PrintWriter(new BufferedWriter(new FileWriter(file), 1 << 16));
+
+		StringBuilder line = new StringBuilder();
+		for(String id : targets)
+			line.append('\t').append(id);
+		pw.println(line);
+
+		for(int i = 0; i < queries.size(); i++){
+			line.setLength(0);
+			line.append(queries.get(i));
+			for(int j = 0; j < targets.size(); j++){
+				double score = triangle && j < i ? lookup(shards, bounds, j, i) : lookup(shards, bounds, i, j);
+				line.append('\t').append(distance ? (selfQueries[i] + selfTargets[j]) / 2 - score : score);
+			}
+			pw.println(line);
+		}
+
+		if(file == null)
+			pw.flush(); //Leaves standard output open.
+		else
+			pw.close();
+	}
+
+	/*
+	 * Helper method that returns the score of the query row and target column from the shard holding its pair.
+	 */
+	private double lookup(DoubleBuffer[] shards, long[] bounds, int row, int column){
+		long pair = rowStarts[row] + column - first(row);
+		int low = 0;
+		int high = shards.length - 1;
+		while(low < high){ //Last shard starting at or before the pair.
+			int mid = (low + high + 1) >>> 1;
+			if(bounds[mid] <= pair)
+				low = mid;
+			else
+				high = mid - 1;
+		}
+		return shards[low].get((int) (pair - bounds[low]));
+	}
+
+	/*
+	 * Helper method that returns the score of the sequence against itself.
+	 */
+	private double selfScore(String id){
+		byte[] sequence = sequences.get(id);
+		return engine.score(sequence, sequence);
+	}
+}
@@ -0,0 +1,124 @@
+import jdk.incubator.vector.*;
+//Author: Nicholas Taylor
+
+/*
+ * Class used for computing rows of the score matrix with the Java Vector API using Farrar's striped layout. The query sequence
+ * (the columns) is cut into lanes segments so that vector k holds the columns k+1, segLength+k+1, 2*segLength+k+1 and so on. The up
+ * and diagonal moves then never depend on another lane, and the back moves that cross from one segment into the next are fixed up
+ * afterwards by the lazy back loop. A query profile of the similarity scores is built once for each code of the rows.
+ *
+ * Only used when the jdk.incubator.vector module is present, so it must be compiled and run with --add-modules jdk.incubator.vector.
+ * Each cell adds up the same doubles as the scalar loop so the rows are identical.
+ */
+public class StripedScoreKernel{
+	private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED; //Widest double vector of the machine.
+	private static final double NONE = Double.NEGATIVE_INFINITY; //Score of the padding past the end of the query.
+
+	private final SequenceComparison scoring; //Supplies the gap penalties and similarity scores.
+	private final byte[] query; //Codes of the columns in the order they are scored.
+	private final int lanes; //Number of doubles in a vector.
+	private final int segLength; //Number of vectors in a row.
+	private final double[] gapProfile; //Striped gap penalty of each column's code.
+	private final double[] striped; //Striped scores of the current row.
+	private final double[][] profiles; //Striped similarity scores for each row code, built when first needed.
+
+	/*
+	 * Constructor for the kernel of the columns sequence[start,end), read backwards from end when reverse is true.
+	 */
+	public StripedScoreKernel(SequenceComparison scoring, int alphabetSize, byte[] sequence, int start, int end, boolean reverse){
+		this.scoring = scoring;
+		this.profiles = new double[alphabetSize][];
+		this.query = new byte[end - start];
+		for(int j = 0; j < query.length; j++)
+			query[j] = reverse ? sequence[end-1-j] : sequence[start+j];
+
+		this.lanes = SPECIES.length();
+		this.segLength = Math.max(1, (query.length + lanes - 1) / lanes);
+		this.striped = new double[segLength * lanes];
+		this.gapProfile = new double[segLength * lanes];
+
+		for(int k = 0; k < segLength; k++){ //Stripes the gap penalties of the columns.
+			for(int s = 0; s < lanes; s++){
+				int j = s * segLength + k;
+				gapProfile[k * lanes + s] = j < query.length ? scoring.getGapPenaltyValue(query[j]) : NONE;
+			}
+		}
+	}
+
+	/*
+	 * Helper method that returns the striped similarity scores of the code c against every column, built the first time it is needed.
+	 */
+	private double[] profile(byte c){
+		double[] profile = profiles[c];
+		if(profile == null){
+			profile = new double[segLength * lanes];
+			for(int k = 0; k < segLength; k++){
+				for(int s = 0; s < lanes; s++){
+					int j = s * segLength + k;
+					profile[k * lanes + s] = j < query.length ? scoring.similarityScore(c, query[j]) : NONE;
+				}
+			}
+			profiles[c] = profile;
+		}
+		return profile;
+	}
+
+	/*
+	 * Method moves row (length query+1) down by count rows, the code of each row being rows[first], rows[first+step], and so on.
+	 */
+	public void fillRows(byte[] rows, int first, int count, int step, double[] row){
+		for(int k = 0; k < segLength; k++){ //Stripes the starting row, the padding never scores.
+			for(int s = 0; s < lanes; s++){
+				int j = s * segLength + k;
+				striped[k * lanes + s] = j < query.length ? row[j+1] : NONE;
+			}
+		}
+		double corner = row[0]; //Score of the first column, which is not part of the striped row.
+
+		DoubleVector none = DoubleVector.broadcast(SPECIES, NONE);
+
+		for(int r = 0; r < count; r++){
+			byte c = rows[first + r * step];
+			double gap = scoring.getGapPenaltyValue(c);
+			double[] profile = profile(c);
+			DoubleVector vGap = DoubleVector.broadcast(SPECIES, gap);
+
+			DoubleVector vLast = DoubleVector.fromArray(SPECIES, striped, (segLength - 1) * lanes);
+			DoubleVector vDiagonal = DoubleVector.broadcast(SPECIES, corner).slice(lanes - 1, vLast); //Shifts the last vector over one lane.
+
+			corner = corner + gap;
+			DoubleVector vBack = none.withLane(0, corner).add(DoubleVector.fromArray(SPECIES, gapProfile, 0));
+
+			for(int k = 0; k < segLength; k++){ //Main pass, back moves only inside each segment.
+				DoubleVector vPrevious = DoubleVector.fromArray(SPECIES, striped, k * lanes);
+				DoubleVector vUp = vPrevious.add(vGap);
+				DoubleVector vDiag = vDiagonal.add(DoubleVector.fromArray(SPECIES, profile, k * lanes));
+				DoubleVector vScore = vUp.max(vDiag).max(vBack);
+				vScore.intoArray(striped, k * lanes);
+
+				vDiagonal = vPrevious;
+				if(k + 1 < segLength)
+					vBack = vScore.add(DoubleVector.fromArray(SPECIES, gapProfile, (k + 1) * lanes));
+			}
+
+			lazyBack:
+			for(int pass = 1; pass < lanes; pass++){ //Carries the back moves across the segment boundaries, one lane per pass.
+				vLast = DoubleVector.fromArray(SPECIES, striped, (segLength - 1) * lanes);
+				vBack = none.slice(lanes - 1, vLast).add(DoubleVector.fromArray(SPECIES, gapProfile, 0));
+				for(int k = 0; k < segLength; k++){
+					DoubleVector vScore = DoubleVector.fromArray(SPECIES, striped, k * lanes);
+					if(!vBack.compare(VectorOperators.GT, vScore).anyTrue()) //Nothing improves so the rest of the row stands.
+						break lazyBack;
+					vScore = vScore.max(vBack);
+					vScore.intoArray(striped, k * lanes);
+					if(k + 1 < segLength)
+						vBack = vScore.add(DoubleVector.fromArray(SPECIES, gapProfile, (k + 1) * lanes));
+				}
+			}
+		}
+
+		row[0] = corner;
+		for(int j = 0; j < query.length; j++) //Puts the striped row back in column order.
+			row[j+1] = striped[(j % segLength) * lanes + j / segLength];
+	}
+}
@@ -0,0 +1,137 @@
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+//Author: Nicholas Taylor
+
+/*
+ * Class used for storing the direction of the previous max of every cell in 2 bits instead of a 16 bit char. The cells are packed
+ * four to a byte into ByteBuffers of at most 1 GB each, which are either on the heap or direct buffers outside the heap so that large
+ * alignments are not scanned by the garbage collector, or regions of a file mapped into memory so that an alignment bigger than the
+ * heap spills to disk and survives the process for an AlignmentCheckpoint. Every row starts on a new byte so tiles of a multiple of 4 columns filled on
+ * different threads never write into the same byte.
+ */
+public class TracebackMatrix{
+	public static final byte UP = 0; //Direction codes of the previous max.
+	public static final byte DIAGONAL = 1;
+	public static final byte BACK = 2;
+
+	private static final int CHUNK_SHIFT = 30; //Each buffer holds 2^30 bytes.
+	private static final long CHUNK_MASK = (1L << CHUNK_SHIFT) - 1;
+
+	private int rows; //Number of rows of cells.
+	private int cols; //Number of columns of cells.
+	private long stride; //Cells from the start of a row to the start of the next, a multiple of 4.
+	private final boolean offHeap; //True if the buffers are direct or mapped.
+	private final ByteBuffer[] chunks; //The packed directions.
+	private final long capacity; //Bytes of all the buffers.
+
+	/*
+	 * Constructor for a rows x cols store, outside the heap when offHeap is true.
+	 */
+	public TracebackMatrix(int rows, int cols, boolean offHeap){
+		this.rows = rows;
+		this.cols = cols;
+		this.stride = ((long) cols + 3) & ~3L;
+		this.offHeap = offHeap;
+
+		long bytes = Math.max(1, rows * stride / 4);
+		this.capacity = bytes;
+		int count = (int) ((bytes + CHUNK_MASK) >>> CHUNK_SHIFT);
+		this.chunks = new ByteBuffer[count];
+		for(int c = 0; c < count; c++){
+			int size = (int) Math.min(1L << CHUNK_SHIFT, bytes - ((long) c << CHUNK_SHIFT));
+			chunks[c] = offHeap ? ByteBuffer.allocateDirect(size) : ByteBuffer.allocate(size);
+		}
+	}
+
+	/*
+	 * Constructor for a rows x cols store in the file of the channel from position on, mapped read write. The file grows to fit.
+	 */
+	public TracebackMatrix(int rows, int cols, FileChannel channel, long position)throws IOException{
+		this.rows = rows;
+		this.cols = cols;
+		this.stride = ((long) cols + 3) & ~3L;
+		this.offHeap = true;
+
+		long bytes = Math.max(1, rows * stride / 4);
+		this.capacity = bytes;
+		int count = (int) ((bytes + CHUNK_MASK) >>> CHUNK_SHIFT);
+		this.chunks = new ByteBuffer[count];
+		for(int c = 0; c < count; c++){
+			long offset = (long) c << CHUNK_SHIFT;
+			chunks[c] = channel.map(FileChannel.MapMode.READ_WRITE, position + offset, Math.min(1L << CHUNK_SHIFT, bytes - offset));
+		}
+	}
+
+	/*
+	 * Method writes the directions of a store mapped from a file back to the file, doing nothing for the other stores.
+	 */
+	public void force(){
+		for(ByteBuffer chunk : chunks){
+			if(chunk instanceof MappedByteBuffer)
+				((MappedByteBuffer) chunk).force();
+		}
+	}
+
+	/*
+	 * Returns the number of bytes the store takes for the given size, used to decide if it fits into memory.
+	 */
+	public static long bytesNeeded(int rows, int cols){
+		return rows * (((long) cols + 3) & ~3L) / 4;
+	}
+
+	/*
+	 * Method reuses the buffers for a rows x cols store, returning false and leaving the store as it was when they are too small.
+	 * The old directions are not cleared, every cell is set by the fill before the traceback reads it.
+	 */
+	public boolean resize(int rows, int cols){
+		if(bytesNeeded(rows, cols) > capacity)
+			return false;
+		this.rows = rows;
+		this.cols = cols;
+		this.stride = ((long) cols + 3) & ~3L;
+		return true;
+	}
+
+	/*
+	 * Sets the direction of the cell at row i and column j, both counted from 0.
+	 */
+	public void set(int i, int j, byte direction){
+		long cell = i * stride + j;
+		ByteBuffer chunk = chunks[(int) (cell >>> (CHUNK_SHIFT + 2))];
+		int index = (int) ((cell >>> 2) & CHUNK_MASK);
+		int shift = (int) (cell & 3) * 2;
+		chunk.put(index, (byte) ((chunk.get(index) & ~(3 << shift)) | (direction << shift)));
+	}
+
+	/*
+	 * Returns the direction of the cell at row i and column j, both counted from 0.
+	 */
+	public byte get(int i, int j){
+		long cell = i * stride + j;
+		ByteBuffer chunk = chunks[(int) (cell >>> (CHUNK_SHIFT + 2))];
+		int shift = (int) (cell & 3) * 2;
+		return (byte) ((chunk.get((int) ((cell >>> 2) & CHUNK_MASK)) >>> shift) & 3);
+	}
+
+	/*
+	 * Returns the number of rows of cells.
+	 */
+	public int getRows(){
+		return rows;
+	}
+
+	/*
+	 * Returns the number of columns of cells.
+	 */
+	public int getCols(){
+		return cols;
+	}
+
+	/*
+	 * Returns true if the directions are stored outside the heap, in direct buffers or a file.
+	 */
+	public boolean isOffHeap(){
+		return offHeap;
+	}
+}
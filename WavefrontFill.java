@@ -0,0 +1,65 @@
+import java.util.*;
+import java.util.concurrent.*;
+//Author: Nicholas Taylor
+
+/*
+ * Class used for filling the score matrix of a SequenceComparison on several threads. The matrix is cut into square tiles
+ * and every tile on the same anti-diagonal is filled at the same time, since each tile only needs the tiles above, to the left and
+ * diagonally up-left of it. Each cell is computed by the same fillTile code as the serial loop so scores and directions are identical.
+ * The tiles on an anti-diagonal never share a column or a row, so they can move the shared rolling row and column at the same time,
+ * and the up-left corner each tile needs is handed along its row of tiles in corners. The pool of each number of threads is made once
+ * and shared by every fill, so an alignment does not pay for starting and stopping threads.
+ */
+public class WavefrontFill{
+	private static final int TILE_SIZE = 256; //Rows and columns of each tile, a multiple of 4 so tiles never share a byte of the TracebackMatrix.
+	private static final Map<Integer,ForkJoinPool> POOLS = new ConcurrentHashMap<Integer,ForkJoinPool>(); //Shared pool of each number of threads, with daemon workers.
+
+	/*
+	 * Method fills the rows 1..rows and columns 1..cols of the comparison's matrix with the given number of threads, or on the calling
+	 * thread when the matrix is a single row or column of tiles.
+	 */
+	public static void fill(SequenceComparison comparison, int rows, int cols, int threads){
+		int tileRows = (rows + TILE_SIZE - 1) / TILE_SIZE; //Number of tiles down the matrix.
+		int tileCols = (cols + TILE_SIZE - 1) / TILE_SIZE; //Number of tiles across the matrix.
+		if(tileRows <= 1 || tileCols <= 1){ //No two tiles share an anti-diagonal, so the serial loop does the same work.
+			if(cols > 0)
+				comparison.fillTile(1, rows + 1, 1, cols + 1, 0);
+			return;
+		}
+
+		double[] corners = new double[tileRows]; //Up-left corner of the next tile to fill in each row of tiles.
+		for(int ti = 0; ti < tileRows; ti++) //The first tile of each row starts from the base case column.
+			corners[ti] = comparison.getBaseColumnValue(ti * TILE_SIZE);
+
+		ForkJoinPool pool = POOLS.computeIfAbsent(threads, ForkJoinPool::new);
+		try{
+			for(int d = 0; d < tileRows + tileCols - 1; d++){ //Walks the anti-diagonals of tiles from the top left corner.
+				List<Callable<Void>> tiles = new ArrayList<Callable<Void>>();
+
+				for(int row = Math.max(0, d - tileCols + 1); row <= Math.min(d, tileRows - 1); row++){ //Every tile (ti,tj) with ti+tj = d.
+					int ti = row;
+					int tj = d - ti;
+					int iStart = 1 + ti * TILE_SIZE;
+					int jStart = 1 + tj * TILE_SIZE;
+					int iEnd = Math.min(iStart + TILE_SIZE, rows + 1);
+					int jEnd = Math.min(jStart + TILE_SIZE, cols + 1);
+
+					tiles.add(() -> {
+						corners[ti] = comparison.fillTile(iStart, iEnd, jStart, jEnd, corners[ti]);
+						return null;
+					});
+				}
+
+				for(Future<Void> tile : pool.invokeAll(tiles)) //Waits for the whole anti-diagonal before starting the next one.
+					tile.get();
+			}
+		}
+		catch(InterruptedException e){
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while filling the matrix", e);
+		}
+		catch(ExecutionException e){
+			throw new IllegalStateException("Error filling a tile of the matrix", e.getCause());
+		}
+	}
+}
@@ -0,0 +1,162 @@
+import java.io.*;
+import java.util.*;
+import Jama.*;
+import benchmarks.Workload;
+//Author: Nicholas Taylor
+
+/*
+ * Class used for running the tool for the benchmarks, see benchmarks.Workload. It is in the default package so it can use the package
+ * private phases of SequenceComparison. The scoring is the DNA weight matrix and gap penalties shipped with the tool, except in the
+ * unit cost modes which use match 0, mismatch -1 and gap -1.
+ */
+public class BenchmarkWorkload implements Workload{
+	private static final double[][] WEIGHTS = { //Same as matrix.input.
+		{1, 0.25, 0.25, 0.3},
+		{0.2, 1, 0.25, 0.25},
+		{0.3, 0.4, 1, 0.1},
+		{0.2, 0.3, 0.2, 1}};
+	private static final double[] PENALTIES = {-0.5, -0.33, -0.4, -0.6}; //Same as penalty.input.
+	private static final double[][] UNIT_WEIGHTS = { //Edit distance, negated.
+		{0, -1, -1, -1},
+		{-1, 0, -1, -1},
+		{-1, -1, 0, -1},
+		{-1, -1, -1, 0}};
+
+	private final ScoringScheme scoring = new ScoringScheme(new Alphabet("ACGT"), new Matrix(WEIGHTS), PENALTIES);
+	private final ScoringScheme unitCost = new ScoringScheme(new Alphabet("ACGT"), new Matrix(UNIT_WEIGHTS), new double[]{-1, -1, -1, -1});
+	private final AlignmentConfig reference = new AlignmentConfig("full", 1, false, false); //Serial full matrix, the reference of the modes.
+	private final SequenceComparison phases = new SequenceComparison(scoring, reference); //Workspace of fill, traceback and write.
+	private AlignmentWriter discard; //Writer of write, reused so it is not part of the allocation rate.
+	private String discardFormat;
+	private byte[] sequenceA;
+	private byte[] sequenceB;
+	private char[] symbolsA; //The pair as the symbols the baseline takes.
+	private char[] symbolsB;
+	private String mode = "baseline";
+	private AlignmentEngine engine;
+
+	public long generate(int length, double similarity, long seed){
+		SequenceGenerator generator = new SequenceGenerator(seed, scoring.size());
+		sequenceA = generator.random(length);
+		sequenceB = generator.mutate(sequenceA, similarity);
+		symbolsA = scoring.getAlphabet().decode(sequenceA);
+		symbolsB = scoring.getAlphabet().decode(sequenceB);
+		return (long) sequenceA.length * sequenceB.length;
+	}
+
+	public void configure(String mode){
+		switch(mode){
+			case "baseline": //LegacySequenceComparison, no engine.
+				engine = null;
+				break;
+			case "score-only": case "full":
+				engine = new AlignmentEngine(scoring, reference);
+				break;
+			case "wavefront":
+				engine = new AlignmentEngine(scoring, reference.withThreads(Runtime.getRuntime().availableProcessors()));
+				break;
+			case "offheap":
+				engine = new AlignmentEngine(scoring, new AlignmentConfig("full", 1, false, true));
+				break;
+			case "linear":
+				engine = new AlignmentEngine(scoring, reference.withAlignmentMode("linear"));
+				break;
+			case "banded":
+				engine = new AlignmentEngine(scoring, reference.withAlignmentMode("banded"));
+				break;
+			case "linear-vector":
+				engine = new AlignmentEngine(scoring, reference.withAlignmentMode("linear").withVectorKernel(true));
+				break;
+			case "unit-full":
+				engine = new AlignmentEngine(unitCost, reference.withBitParallel(false));
+				break;
+			case "bit-parallel":
+				engine = new AlignmentEngine(unitCost, reference);
+				break;
+			case "fixed-point":
+				engine = new AlignmentEngine(scoring, reference.withFixedPoint(true));
+				break;
+			default:
+				throw new IllegalArgumentException("Error invalid engine mode " + mode);
+		}
+		this.mode = mode;
+	}
+
+	public double align(){
+		switch(mode){
+			case "baseline": //The original implementation, nothing reused between pairs.
+				LegacySequenceComparison sc = new LegacySequenceComparison(new Matrix(WEIGHTS), PENALTIES, symbolsA, symbolsB);
+				sc.computeOptimalAlignments();
+				return sc.getOptimalSimilarityScore();
+			case "score-only":
+				return engine.score(sequenceA, sequenceB);
+			default:
+				return engine.align(sequenceA, sequenceB).getScore();
+		}
+	}
+
+	public double fill(){
+		phases.setSequences(sequenceA, sequenceB);
+		phases.fillFullMatrix();
+		return phases.getOptimalSimilarityScore();
+	}
+
+	public int traceback(){
+		phases.traceFullMatrix();
+		return phases.getOptimalAlignmentA().length();
+	}
+
+	public void write(String format)throws IOException{
+		if(!format.equals(discardFormat)){
+			discard = new AlignmentWriter(Writer.nullWriter(), format, 80, false, false);
+			discardFormat = format;
+		}
+		phases.writeAlignment(discard, "1", "2");
+		discard.close(); //Only flushes.
+	}
+
+	public void writeFiles(File directory, int count, int length, long seed)throws IOException{
+		try(PrintWriter pw = new PrintWriter(new FileWriter(new File(directory, "matrix.input")))){
+			for(double[] row : WEIGHTS){
+				StringBuilder line = new StringBuilder();
+				for(double weight : row)
+					line.append(line.length() > 0 ? " " : "").append(weight);
+				pw.println(line);
+			}
+		}
+		try(PrintWriter pw = new PrintWriter(new FileWriter(new File(directory, "penalty.input")))){
+			StringBuilder line = new StringBuilder();
+			for(double penalty : PENALTIES)
+				line.append(line.length() > 0 ? " " : "").append(penalty);
+			pw.println(line);
+		}
+
+		SequenceGenerator generator = new SequenceGenerator(seed, scoring.size());
+		byte[] ancestor = generator.random(length);
+		List<byte[]> sequences = new ArrayList<byte[]>();
+		for(int k = 0; k < count; k++)
+			sequences.add(generator.mutate(ancestor, 0.9));
+		try(Writer out = new FileWriter(new File(directory, "sequences.input"))){
+			SequenceGenerator.write(out, sequences, scoring.getAlphabet());
+		}
+
+		try(PrintWriter pw = new PrintWriter(new FileWriter(new File(directory, "comparison.conf")))){
+			pw.println("sequenceInputFile = " + new File(directory, "sequences.input").getAbsolutePath());
+			pw.println("sequenceA = 1");
+			pw.println("sequenceB = " + count);
+			pw.println("weightMatrixFile = " + new File(directory, "matrix.input").getAbsolutePath());
+			pw.println("gapPenaltyFile = " + new File(directory, "penalty.input").getAbsolutePath());
+			pw.println("alphabet = ACGT");
+		}
+	}
+
+	public Object parse(File directory)throws IOException{
+		Properties properties = Parser.parseConfig(new File(directory, "comparison.conf"));
+		Matrix weightMatrix = Parser.parseWeightMatrixFile(properties.getProperty("weightMatrixFile"));
+		double[] penalties = Parser.parseGapPenaltyFile(properties.getProperty("gapPenaltyFile"));
+		Alphabet alphabet = new Alphabet(properties.getProperty("alphabet"));
+		new ScoringScheme(alphabet, weightMatrix, penalties);
+		return Parser.parseSequences(properties.getProperty("sequenceInputFile"),
+			Arrays.asList(properties.getProperty("sequenceA"), properties.getProperty("sequenceB")), alphabet);
+	}
+}
@@ -0,0 +1,249 @@
+import Jama.*;
+//Author: Nicholas Taylor
+
+/*
+ * Class used as the baseline of the benchmarks, the alignment of the original SequenceComparison before the engine modes, kept as it
+ * was: a new double[][] score matrix and char[][] directions for every pair, the symbols of the sequences looked up with switches on
+ * chars, the weights read from the Jama Matrix for every cell, and the alignment traced back by prepending to Strings. Only the file
+ * parsing and output, which the benchmarks measure separately, are left out. Only for the benchmarks, the tool never uses it.
+ */
+public class LegacySequenceComparison{
+	private Matrix weightMatrix; //The weight matrix for determining the optimal alignment between the sequences.
+	private char[] sequenceA; //SequenceA which represents a DNA sequence.
+	private char[] sequenceB; //SequenceB which represents a DNA sequence.
+	private double[] gapPenalties; //gapPenalties for each particular nucleotide A,C,G and T.
+
+	private String optimalAlignmentA = ""; //The string representation of the optimalAlignment of sequenceA with respect to
+	private String optimalAlignmentB = "";  //The other optimal alignment of sequenceB.
+	private double optimalSimilarityScore; //Gets the similarityScore between the two optimal Alignments of sequences  A and B.
+	private double[][] sequenceAnalysisArray;
+	private char[][] directionOfPreviousMax;
+	private static final int A = 0; //Each of these nucleotide DNA are used to index into the gapPenality as well as the Weight Matrix.
+	private static final int C = 1;
+	private static final int G = 2;
+	private static final int T = 3;
+
+	/*
+	 * Constuctor for init the SequenceComparison instance with its weightMatrix, gapPenalties, and two sequences.
+	 */
+	public LegacySequenceComparison(Matrix weightMatrix, double[] gapPenalties,
+		char[] sequenceOne, char[] sequenceTwo){
+
+		this.weightMatrix = weightMatrix; //WeightMatrix.
+
+		this.gapPenalties = new double[gapPenalties.length]; //gapPenalties.
+
+		for(int i = 0; i < gapPenalties.length; i++){ //Deep copy of the gap Penalities.
+			this.gapPenalties[i] = gapPenalties[i];
+		}
+
+		this.sequenceA = new char[sequenceOne.length];
+
+		for(int j = 0; j < sequenceOne.length; j++){ //Deep copy of the sequenceA.
+			this.sequenceA[j] = sequenceOne[j];
+		}
+
+		this.sequenceB = new char[sequenceTwo.length];
+		for(int k = 0; k < sequenceTwo.length; k++){ //Deep copy of the sequenceB.
+			this.sequenceB[k] = sequenceTwo[k];
+		}
+		this.sequenceAnalysisArray = new double[this.sequenceA.length+1][this.sequenceB.length+1]; //Creates the sequenceAnalysisArray.
+
+
+		this.directionOfPreviousMax = new char[sequenceAnalysisArray.length][sequenceAnalysisArray[0].length]; //Used to indicate direction of the previous max direction with 'D' being diagonal, 'U' being up, and 'L' being left.
+	}
+
+	/*
+	 * Helper function that initializes the base cases for the Sequences set such as S(0,0) = 0, S(i,0) = g(uk), and S(0,j) = g(vk).
+	 */
+	 private void initBaseCases(){
+		sequenceAnalysisArray[0][0] = 0; //Sets the S(0,0) as 0
+		double gap = 0; //Used as the gap.
+
+		for(int i = 0; i < this.sequenceA.length; i++){ //Sets the S(i,0) of the sequenceAnalaysisArray.
+			switch(sequenceA[i]){ //Using a switch case for each nucleotide case then adding the gap penalty for that particular nucleotide.
+				case 'A': gap+=gapPenalties[this.A];
+					   break;
+				case 'C': gap+=gapPenalties[this.C];
+					  break;
+				case 'G': gap+=gapPenalties[this.G];
+					  break;
+				case 'T': gap+=gapPenalties[this.T];
+					  break;
+				default:
+					  break;
+			 }
+			 sequenceAnalysisArray[i+1][0] = gap;
+			 directionOfPreviousMax[i+1][0] = 'U';
+		}
+		gap = 0; //Reset the gap to 0 for doing the next sequence.
+
+		for(int j = 0; j < sequenceB.length; j++){ //Sets the S(0,j) of the sequenceAnalysisArray.
+			switch(sequenceB[j]){
+				case 'A': gap+=gapPenalties[this.A];
+					  break;
+				case 'C': gap+=gapPenalties[this.C];
+					  break;
+				case 'G': gap+=gapPenalties[this.G];
+					  break;
+			 	case 'T': gap+=gapPenalties[this.T];
+					  break;
+				default:
+					  break;
+			}
+			sequenceAnalysisArray[0][j+1] = gap;
+			directionOfPreviousMax[0][j+1] = 'B';
+		}
+	 }
+
+	/*
+	 * Helper method for calculating the Gap Penalty of the particular DNA Nucleotide.
+	 */
+	private double getGapPenaltyValue(char c){
+		double gap = 0;
+		switch(c){ //Using a switch statement gets the appropriate gap penalty with the DNA Nucleotide.
+			case 'A': gap=gapPenalties[this.A];
+				   break;
+			case 'C': gap=gapPenalties[this.C];
+				   break;
+			case 'G': gap=gapPenalties[this.G];
+				   break;
+			case 'T': gap=gapPenalties[this.T];
+				   break;
+			default:
+				   break;
+			}
+		return gap;  //Returns the gap penalty.
+	}
+
+	/*
+	 * Helper method to calculate the similarity score between two DNA nucleotides with the weight matrix.
+	 */
+	private double similarityScore(char ui, char vi){
+		int i = 0; //Holders for the value of A,C,G,or T
+		int j = 0; //same as above.
+
+		switch(ui){ //Using a switch statement gets the appropriate DNA Nucleotide.
+			case 'A': i=this.A;
+				   break;
+			case 'C': i=this.C;
+				   break;
+			case 'G': i=this.G;
+				   break;
+			case 'T': i=this.T;
+				   break;
+			default:
+				   break;
+		}
+
+		switch(vi){ //Using a switch statement gets the appropriate DNA Nucleotide.
+			case 'A': j=this.A;
+				   break;
+			case 'C': j=this.C;
+				   break;
+			case 'G': j=this.G;
+				   break;
+			case 'T': j=this.T;
+				   break;
+			default:
+				   break;
+		}
+		return weightMatrix.get(i,j); //Returns the weight of the two DNA nucleotides.
+	}
+
+
+	/*
+	 * Helper method to get the maximum
+	 */
+	private char getMax(double up, double diagonal, double back){
+		if((up >= diagonal) && (up >= back)){ //If all three are equal up has highest priority.
+			return 'U';
+		}
+
+		else if((diagonal >= up) && (diagonal >= back)){ //If up and diagonal equal for max then up is max.
+			return 'D';
+		}
+
+		else if((back >= diagonal) && (back >= up)){ //If up and back are equal and up is bigger than diagonal, up is max.
+			return 'B';
+		}
+
+		else{ //Only reached with a NaN score, where the original exited.
+			throw new IllegalStateException("Something bad happend");
+		}
+	}
+
+	/*
+	 * Method computes the Smith-Waterman Global Sequence Comparison Algorithm.
+	 */
+	public void computeOptimalAlignments(){
+		initBaseCases();  //Inits the sequenceAnalaysisArray with the base settings.
+
+		double up = 0; //Used for representing the value from the left.
+
+		double diagonal = 0; //Used for representing the value from the diagonal.
+
+		double back = 0; //Used for representing the value of the left.
+
+		for(int i = 1; i < sequenceA.length+1; i++){ //Iterates through the sequenceAnalysisArray till we reach the furthest bottom right corner.
+			for(int j = 1; j < sequenceB.length+1; j++){
+				up = sequenceAnalysisArray[i-1][j] + getGapPenaltyValue(sequenceA[i-1]); //Gets the up value.
+
+				diagonal = sequenceAnalysisArray[i-1][j-1] + similarityScore(sequenceA[i-1],sequenceB[j-1]); //Gets the diagonal value.
+				back = sequenceAnalysisArray[i][j-1] + getGapPenaltyValue(sequenceB[j-1]); //Gets the back value.
+
+				directionOfPreviousMax[i][j] = getMax(up,diagonal,back); //returns which direction was the max into the char array indicating the direction of the previous max.
+
+				switch(directionOfPreviousMax[i][j]){ //Inserts the max value of either the Up, Diagonal, and Back into the current position of the sequenceAnalayisArray.
+					case 'U': sequenceAnalysisArray[i][j] = up;
+						  break;
+				    	case 'D': sequenceAnalysisArray[i][j] = diagonal;
+						  break;
+					case 'B': sequenceAnalysisArray[i][j] = back;
+						  break;
+					default:
+						  break;
+				}
+			}
+		}
+
+		int i = sequenceAnalysisArray.length-1;
+
+		int j = sequenceAnalysisArray[0].length-1;
+		optimalSimilarityScore = sequenceAnalysisArray[i][j]; //Gets the optimal similarity score between the two optimal alignments of sequences A and B.
+		while(i+j != 0){ //Tracing the optimal Alignment back to the origin of the sequenceAnalysisArray.
+			switch(directionOfPreviousMax[i][j]){ //Following the previous max
+				case 'U': optimalAlignmentA = sequenceA[i-1] + optimalAlignmentA; //Case if the previous max direction was up we set the sequenceA to its nucleoTide but make a gap in sequenceB
+					  optimalAlignmentB = "-" + optimalAlignmentB;
+					  i--; //We then move up.
+				          break;
+				case 'D': optimalAlignmentA = sequenceA[i-1] + optimalAlignmentA; //Case if the previous max direction was diagonal we set both sequenceA and sequenceB to their nucleoTides.
+					  optimalAlignmentB = sequenceB[j-1] + optimalAlignmentB;
+					  i--;
+					  j--; //Then move diagonal and continue till we reach s(0,0).
+					  break;
+
+				case 'B': optimalAlignmentA = "-" + optimalAlignmentA; //Case where the previous max direction was back we set just the sequenceA as a gap and set the sequenceB as its nucleotide DNA sequence.
+					  optimalAlignmentB = sequenceB[j-1] + optimalAlignmentB;
+					  j--; //Move back and continue.
+					  break;
+				default:
+					  break;
+				}
+		}
+	}
+
+	/*
+	 * Returns the optimal similarity score of the last computeOptimalAlignments.
+	 */
+	public double getOptimalSimilarityScore(){
+		return optimalSimilarityScore;
+	}
+
+	/*
+	 * Returns the optimal alignment of sequence A of the last computeOptimalAlignments.
+	 */
+	public String getOptimalAlignmentA(){
+		return optimalAlignmentA;
+	}
+}
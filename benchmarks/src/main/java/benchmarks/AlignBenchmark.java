@@ -0,0 +1,42 @@
+package benchmarks;
+
+import java.util.concurrent.*;
+import org.openjdk.jmh.annotations.*;
+//Author: Nicholas Taylor
+
+/*
+ * Benchmark of a whole alignment in every engine mode across lengths and similarities, against the baseline mode. See Workload for
+ * the modes.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules=jdk.incubator.vector"})
+public class AlignBenchmark{
+	@Param({"100", "1000", "4000"})
+	public int length;
+
+	@Param({"0.5", "0.9", "0.99"})
+	public double similarity;
+
+	@Param({"baseline", "full", "wavefront", "offheap", "linear", "linear-vector", "banded", "score-only", "unit-full", "bit-parallel", "fixed-point"})
+	public String mode;
+
+	private Workload workload;
+	private long cellsPerPair;
+
+	@Setup(Level.Trial)
+	public void setup(){
+		workload = Workload.create();
+		cellsPerPair = workload.generate(length, similarity, 42);
+		workload.configure(mode);
+	}
+
+	@Benchmark
+	public double align(Cells cells){
+		cells.cells += cellsPerPair;
+		return workload.align();
+	}
+}
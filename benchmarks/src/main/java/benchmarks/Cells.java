@@ -0,0 +1,18 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+//Author: Nicholas Taylor
+
+/*
+ * Counter of the matrix cells computed by a benchmark, which JMH reports as cells per second next to the operations per second.
+ */
+@State(Scope.Thread)
+@AuxCounters(AuxCounters.Type.OPERATIONS)
+public class Cells{
+	public long cells; //Cells computed in the iteration.
+
+	@Setup(Level.Iteration)
+	public void reset(){
+		cells = 0;
+	}
+}
@@ -0,0 +1,38 @@
+package benchmarks;
+
+import java.io.*;
+import java.util.concurrent.*;
+import org.openjdk.jmh.annotations.*;
+//Author: Nicholas Taylor
+
+/*
+ * Benchmark of writing one alignment in each output format, without the cost of the disk.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules=jdk.incubator.vector"})
+public class OutputBenchmark{
+	@Param({"100", "4000"})
+	public int length;
+
+	@Param({"text", "cigar", "tsv", "json"})
+	public String format;
+
+	private Workload workload;
+
+	@Setup(Level.Trial)
+	public void setup()throws IOException{
+		workload = Workload.create();
+		workload.generate(length, 0.9, 42);
+		workload.fill();
+		workload.traceback();
+	}
+
+	@Benchmark
+	public void write()throws IOException{
+		workload.write(format);
+	}
+}
@@ -0,0 +1,47 @@
+package benchmarks;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.concurrent.*;
+import org.openjdk.jmh.annotations.*;
+//Author: Nicholas Taylor
+
+/*
+ * Benchmark of parsing the configuration, weight matrix, gap penalties and the first and last sequence of Sequence Input files of
+ * different sizes.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules=jdk.incubator.vector"})
+public class ParseBenchmark{
+	@Param({"2", "1000"})
+	public int count;
+
+	@Param({"1000"})
+	public int length;
+
+	private Workload workload;
+	private File directory;
+
+	@Setup(Level.Trial)
+	public void setup()throws IOException{
+		workload = Workload.create();
+		directory = Files.createTempDirectory("parse-benchmark").toFile();
+		workload.writeFiles(directory, count, length, 42);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown(){
+		for(File file : directory.listFiles())
+			file.delete();
+		directory.delete();
+	}
+
+	@Benchmark
+	public Object parse()throws IOException{
+		return workload.parse(directory);
+	}
+}
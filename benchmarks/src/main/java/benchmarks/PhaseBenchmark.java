@@ -0,0 +1,46 @@
+package benchmarks;
+
+import java.io.*;
+import java.util.concurrent.*;
+import org.openjdk.jmh.annotations.*;
+//Author: Nicholas Taylor
+
+/*
+ * Benchmark of the fill and the traceback of the full matrix mode on their own, across lengths and similarities. The traceback reads
+ * the matrix filled in the setup.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules=jdk.incubator.vector"})
+public class PhaseBenchmark{
+	@Param({"100", "1000", "4000"})
+	public int length;
+
+	@Param({"0.5", "0.9", "0.99"})
+	public double similarity;
+
+	private Workload workload;
+	private long cellsPerPair;
+
+	@Setup(Level.Trial)
+	public void setup()throws IOException{
+		workload = Workload.create();
+		cellsPerPair = workload.generate(length, similarity, 42);
+		workload.fill();
+		workload.traceback();
+	}
+
+	@Benchmark
+	public double fill(Cells cells){
+		cells.cells += cellsPerPair;
+		return workload.fill();
+	}
+
+	@Benchmark
+	public int traceback()throws IOException{
+		return workload.traceback();
+	}
+}
@@ -0,0 +1,21 @@
+package benchmarks;
+
+import org.openjdk.jmh.profile.*;
+import org.openjdk.jmh.runner.*;
+import org.openjdk.jmh.runner.options.*;
+//Author: Nicholas Taylor
+
+/*
+ * Main class of benchmarks.jar, which runs JMH with its usual command line options and always adds the gc profiler so the allocation
+ * rate is reported next to the throughput and cells per second.
+ * Usage: java -jar benchmarks.jar [JMH options], for example AlignBenchmark -p length=1000 -rf json
+ */
+public class RunBenchmarks{
+	public static void main(String[] args)throws Exception{
+		Options options = new OptionsBuilder()
+			.parent(new CommandLineOptions(args))
+			.addProfiler(GCProfiler.class)
+			.build();
+		new Runner(options).run();
+	}
+}
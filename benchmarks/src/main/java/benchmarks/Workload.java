@@ -0,0 +1,79 @@
+package benchmarks;
+
+import java.io.*;
+//Author: Nicholas Taylor
+
+/*
+ * Interface the benchmarks drive the tool through. JMH only accepts benchmarks in a named package and the tool's classes are in the
+ * default package, which a named package cannot import, so the work is done by BenchmarkWorkload in the default package and the
+ * benchmarks load it by name. Every call is a plain interface call, the lookup happens once in the setup.
+ *
+ * The engine modes are:
+ *   baseline      - the original implementation kept as LegacySequenceComparison, a new char[] pair, Jama weight lookups and double[][]
+ *                   matrix for every pair, the reference every other mode must match and is measured against
+ *   full          - the full matrix mode on a reused AlignmentEngine workspace
+ *   wavefront     - the full matrix mode filled on every available processor
+ *   offheap       - the full matrix mode with the traceback outside the heap
+ *   linear        - the linear space mode with the scalar rows
+ *   linear-vector - the linear space mode with the StripedScoreKernel
+ *   banded        - the banded mode, starting from the default band width
+ *   score-only    - only the score, with the ScoreOnlyAligner
+ *   unit-full     - the full matrix mode with the unit cost scheme 0, -1, -1, the reference of bit-parallel
+ *   bit-parallel  - the unit cost scheme aligned with the BitParallelAligner
+ *   fixed-point   - the full matrix mode filled with short or int cells at the default 3 decimals
+ */
+public interface Workload{
+
+	/*
+	 * Makes the pair of sequences, the second a mutation of the first with the given similarity, and returns the number of cells of its matrix.
+	 */
+	long generate(int length, double similarity, long seed);
+
+	/*
+	 * Chooses the engine mode used by align.
+	 */
+	void configure(String mode);
+
+	/*
+	 * Aligns the pair with the engine mode and returns the score.
+	 */
+	double align();
+
+	/*
+	 * Fills the full matrix of the pair without the traceback and returns the score.
+	 */
+	double fill();
+
+	/*
+	 * Traces the alignment back through the matrix of the last fill and returns its length.
+	 */
+	int traceback()throws IOException;
+
+	/*
+	 * Writes the alignment of the last traceback in the output format to a writer that throws the text away.
+	 */
+	void write(String format)throws IOException;
+
+	/*
+	 * Writes a configuration file, weight matrix, gap penalties and a Sequence Input file of count sequences of the given length into
+	 * the directory, for parse.
+	 */
+	void writeFiles(File directory, int count, int length, long seed)throws IOException;
+
+	/*
+	 * Parses the files of writeFiles the way SequenceComparison.main does, reading the first and the last sequence, and returns what was parsed.
+	 */
+	Object parse(File directory)throws IOException;
+
+	/*
+	 * Returns a new instance of the BenchmarkWorkload.
+	 */
+	static Workload create(){
+		try{
+			return (Workload) Class.forName("BenchmarkWorkload").getDeclaredConstructor().newInstance();
+		}
+		catch(ReflectiveOperationException e){
+			throw new IllegalStateException("Error loading the BenchmarkWorkload", e);
+		}
+	}
+}